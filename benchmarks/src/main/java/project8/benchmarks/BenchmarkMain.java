@@ -0,0 +1,24 @@
+package project8.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that the allocation rate is
+ * reported next to the time of every benchmark. Takes the usual JMH command line options.
+ * @author YiWang
+ */
+public class BenchmarkMain {
+	/**
+	 * The main method runs the benchmarks
+	 * @param args JMH command line options, e.g. a benchmark name pattern
+	 * @throws Exception if the options are invalid or a benchmark fails
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		new Runner(new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -0,0 +1,82 @@
+package project8.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import project8.Game;
+import project8.GameAI;
+import project8.TranspositionTable;
+
+/**
+ * Benchmarks of a whole AI move with the default depth.
+ * Every invocation searches the next position of the phase with an empty
+ * transposition table, so the result is the mean over the phase.
+ * chooseColumn reports the time per move, searchRate reports the moves
+ * and the nodes searched per second.
+ * @author YiWang
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChooseColumnBenchmark {
+	@Param({"opening", "middlegame", "endgame"})
+	public String phase;
+
+	private Game[] games;
+	private TranspositionTable table;
+	private GameAI ai;
+	private int next;
+
+	/**
+	 * Counts the nodes searched, reported as a rate next to the operations
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Nodes {
+		public long nodes;
+
+		@Setup(Level.Iteration)
+		public void clean()
+		{
+			nodes = 0;
+		}
+	}
+
+	@Setup
+	public void setUp()
+	{
+		String[] moves = Positions.of(phase);
+		games = new Game[moves.length];
+		for (int i = 0; i < moves.length; ++i)
+			games[i] = Positions.game(moves[i]);
+		table = new TranspositionTable();
+		ai = new GameAI(table);
+	}
+
+	@Setup(Level.Invocation)
+	public void nextPosition()
+	{
+		table.clear();
+		next = (next + 1) % games.length;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public int chooseColumn()
+	{
+		return ai.chooseColumn(games[next]);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public int searchRate(Nodes counter)
+	{
+		int col = ai.chooseColumn(games[next]);
+		counter.nodes += ai.getNodes();
+		return col;
+	}
+}
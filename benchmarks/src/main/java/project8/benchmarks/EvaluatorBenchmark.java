@@ -0,0 +1,89 @@
+package project8.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import project8.Evaluator;
+import project8.Game;
+import project8.Position;
+
+/**
+ * Benchmarks of the board evaluation: a full evaluation from scratch, and the
+ * incremental evaluation the search does at its leaves (place a disc, read the
+ * score, take the disc back) for every legal column, and the frontier evaluation
+ * reading the score of every child without placing the disc.
+ * Every operation evaluates all positions of the phase.
+ * @author YiWang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluatorBenchmark {
+	@Param({"opening", "middlegame", "endgame"})
+	public String phase;
+
+	private Position[] positions;
+	private Evaluator[] evaluators;
+	private Evaluator scratch;
+
+	@Setup
+	public void setUp()
+	{
+		String[] moves = Positions.of(phase);
+		positions = new Position[moves.length];
+		evaluators = new Evaluator[moves.length];
+		for (int i = 0; i < moves.length; ++i)
+		{
+			positions[i] = Positions.position(moves[i]);
+			evaluators[i] = new Evaluator();
+			evaluators[i].reset(positions[i]);
+		}
+		scratch = new Evaluator();
+	}
+
+	@Benchmark
+	public void fullEvaluation(Blackhole blackhole)
+	{
+		for (Position position: positions)
+		{
+			scratch.reset(position);
+			blackhole.consume(scratch.score());
+		}
+	}
+
+	@Benchmark
+	public void leafEvaluation(Blackhole blackhole)
+	{
+		for (int i = 0; i < positions.length; ++i)
+		{
+			Position position = positions[i];
+			Evaluator evaluator = evaluators[i];
+			for (int col = 0; col < Game.getColumn(); ++col)
+				if (position.canPlay(col))
+				{
+					int row = Game.getRow() - 1 - position.columnHeight(col);
+					evaluator.place(row, col, Game.getAI());
+					blackhole.consume(evaluator.score());
+					evaluator.remove(row, col, Game.getAI());
+				}
+		}
+	}
+
+	@Benchmark
+	public void frontierEvaluation(Blackhole blackhole)
+	{
+		for (int i = 0; i < positions.length; ++i)
+		{
+			Position position = positions[i];
+			Evaluator evaluator = evaluators[i];
+			for (int col = 0; col < Game.getColumn(); ++col)
+				if (position.canPlay(col))
+					blackhole.consume(evaluator.childScore(position, col, Game.getAI()));
+		}
+	}
+}
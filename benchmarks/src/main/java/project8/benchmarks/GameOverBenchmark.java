@@ -0,0 +1,63 @@
+package project8.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import project8.Game;
+import project8.Position;
+
+/**
+ * Benchmarks of the game over checks: the full-board Game.isGameOver and
+ * Position.isGameOver, and the last-move check used by Game.placeDisc and the search.
+ * Every operation checks all positions of the phase.
+ * @author YiWang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameOverBenchmark {
+	@Param({"opening", "middlegame", "endgame"})
+	public String phase;
+
+	private char[][][] boards;
+	private Position[] positions;
+
+	@Setup
+	public void setUp()
+	{
+		String[] moves = Positions.of(phase);
+		boards = new char[moves.length][][];
+		positions = new Position[moves.length];
+		for (int i = 0; i < moves.length; ++i)
+		{
+			positions[i] = Positions.position(moves[i]);
+			boards[i] = positions[i].toBoard();
+		}
+	}
+
+	@Benchmark
+	public void gameIsGameOver(Blackhole blackhole)
+	{
+		for (char[][] board: boards)
+			blackhole.consume(Game.isGameOver(board));
+	}
+
+	@Benchmark
+	public void positionIsGameOver(Blackhole blackhole)
+	{
+		for (Position position: positions)
+			blackhole.consume(position.isGameOver());
+	}
+
+	@Benchmark
+	public void lastMoveWon(Blackhole blackhole)
+	{
+		for (Position position: positions)
+			blackhole.consume(position.lastMoveWon() || position.isFull());
+	}
+}
@@ -0,0 +1,51 @@
+package project8.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import project8.Game;
+import project8.Position;
+
+/**
+ * Benchmarks of move generation as the search does it: find the legal columns,
+ * check each for an immediate win, then play and take back every column.
+ * Every operation generates the moves of all positions of the phase.
+ * @author YiWang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+	@Param({"opening", "middlegame", "endgame"})
+	public String phase;
+
+	private Position[] positions;
+
+	@Setup
+	public void setUp()
+	{
+		String[] moves = Positions.of(phase);
+		positions = new Position[moves.length];
+		for (int i = 0; i < moves.length; ++i)
+			positions[i] = Positions.position(moves[i]);
+	}
+
+	@Benchmark
+	public void playAndUndo(Blackhole blackhole)
+	{
+		for (Position position: positions)
+			for (int col = 0; col < Game.getColumn(); ++col)
+				if (position.canPlay(col))
+				{
+					blackhole.consume(position.isWinningMove(col, Game.getAI()));
+					position.play(col, Game.getAI());
+					blackhole.consume(position.key(Game.getHuman()));
+					position.undo();
+				}
+	}
+}
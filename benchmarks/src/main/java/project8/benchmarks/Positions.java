@@ -0,0 +1,66 @@
+package project8.benchmarks;
+
+import project8.Game;
+import project8.Position;
+
+/**
+ * The fixed corpus of positions used by the benchmarks.
+ * Every position is written as the columns (1-7) played from the empty board,
+ * with the human playing first, so that it is always the AI's turn.
+ * None of the positions has a winning move for either player.
+ * @author YiWang
+ */
+public final class Positions {
+	/** Positions with 5 to 7 discs */
+	public static final String[] OPENING = {"7765266", "74641", "2624567", "42226"};
+	/** Positions with 15 to 19 discs */
+	public static final String[] MIDDLEGAME = {"764663662141251", "14723373214335443", "7331351341514744737", "6232436632774523151"};
+	/** Positions with 29 to 31 discs */
+	public static final String[] ENDGAME = {"54241622444412535577517737511", "41123411267444755546557361671",
+			"64176261431674763122567772252", "7374153735641423714357454275161"};
+
+	private Positions() {}
+
+	/**
+	 * Get the positions of a game phase
+	 * @param phase "opening", "middlegame" or "endgame"
+	 * @return the positions of the phase, as column strings
+	 */
+	public static String[] of(String phase)
+	{
+		switch (phase)
+		{
+			case "opening":
+				return OPENING;
+			case "middlegame":
+				return MIDDLEGAME;
+			case "endgame":
+				return ENDGAME;
+			default:
+				throw new IllegalArgumentException("Unknown phase " + phase);
+		}
+	}
+
+	/**
+	 * Replay a position in a new game
+	 * @param moves the columns (1-7) played from the empty board
+	 * @return the game, AI to move
+	 */
+	public static Game game(String moves)
+	{
+		Game game = new Game();
+		for (char move: moves.toCharArray())
+			game.placeDisc(move - '1');
+		return game;
+	}
+
+	/**
+	 * Replay a position
+	 * @param moves the columns (1-7) played from the empty board
+	 * @return the position
+	 */
+	public static Position position(String moves)
+	{
+		return game(moves).getPosition();
+	}
+}
@@ -0,0 +1,141 @@
+package project8;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This program analyzes positions without a human player.
+ * It reads one position per line, given as the columns played so far (1-7 on the usual board, e.g. "4453"),
+ * and writes one line per position with the columns played, the best column (from 1),
+ * its score, the search depth and the number of nodes searched, separated by tabs.
+ * The score is seen from the player to move, positive when that player is better.
+ * A position that cannot be analyzed gets the columns played and an error message instead.
+ * The positions are analyzed in parallel, but the results are written in the order
+ * of the input. The input is streamed: only a few positions per thread are in memory at once,
+ * so the input may be arbitrarily large.
+ * Usage: BatchAnalysis [file] [depth] [threads]
+ * @author YiWang
+ */
+public class BatchAnalysis {
+	private static final int POSITIONS_PER_THREAD = 4;	// how many positions per thread are read ahead of the output
+
+	/**
+	 * The main method analyzes the positions of a file or of the standard input
+	 * @param args optionally the input file ("-" for the standard input, which is the default),
+	 * the search depth (default 11) and the number of threads (default the number of available processors)
+	 * @throws Exception if the positions cannot be read or a search fails
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		String file = args.length > 0? args[0] : "-";
+		int depth = args.length > 1? Integer.parseInt(args[1]) : 11;
+		int threads = args.length > 2? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		long start = System.nanoTime();
+		long count;
+		try (BufferedReader in = file.equals("-")? new BufferedReader(new InputStreamReader(System.in))
+				: Files.newBufferedReader(Paths.get(file)))
+		{
+			PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+			count = analyze(in, out, depth, threads);
+			out.flush();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.err.printf("%d positions analyzed in %.1f s, %.1f positions per second%n", count, seconds, count / seconds);
+	}
+
+	/**
+	 * Analyze every position read, in parallel, and write the results in the order of the input.
+	 * Blank lines are skipped.
+	 * @param in the positions, one per line
+	 * @param out receives one result line per position
+	 * @param depth how deep each position is searched
+	 * @param threads number of positions analyzed at the same time
+	 * @return the number of positions analyzed
+	 * @throws IOException if the positions cannot be read
+	 * @throws InterruptedException if the thread is interrupted while waiting for the searches
+	 * @throws ExecutionException if a search fails
+	 */
+	public static long analyze(BufferedReader in, PrintWriter out, int depth, int threads)
+			throws IOException, InterruptedException, ExecutionException
+	{
+		if (depth < 1)
+			throw new IllegalArgumentException("Invalid depth");
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ThreadLocal<GameAI> ais = ThreadLocal.withInitial(() -> {
+			GameAI ai = new GameAI();
+			ai.setMaxDepth(depth);
+			return ai;
+		});
+		Deque<Future<String>> pending = new ArrayDeque<Future<String>>();	// results not written yet, in input order
+		long count = 0;
+		try
+		{
+			String line;
+			while ((line = in.readLine()) != null)
+			{
+				String moves = line.trim();
+				if (moves.isEmpty())
+					continue;
+				if (pending.size() == threads * POSITIONS_PER_THREAD)	// wait for the oldest result before reading on
+					out.println(pending.poll().get());
+				pending.add(pool.submit(() -> analyze(ais.get(), moves)));
+				count++;
+			}
+			while (!pending.isEmpty())
+				out.println(pending.poll().get());
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+		return count;
+	}
+
+	/**
+	 * Helper method. Analyze one position.
+	 * @param ai the AI searching the position
+	 * @param moves the columns played so far, from 1
+	 * @return the result line of the position
+	 */
+	private static String analyze(GameAI ai, String moves)
+	{
+		Game game;
+		try
+		{
+			game = replay(moves);
+		}
+		catch (IllegalArgumentException e)		// an invalid column or the game is already over
+		{
+			return moves + "\terror: " + e.getMessage();
+		}
+		SearchStats stats = ai.analyze(game);
+		return moves + "\t" + (stats.getColumn() + 1) + "\t" + stats.getScore() + "\t" + stats.getDepth()
+				+ "\t" + stats.getNodes();
+	}
+
+	/**
+	 * Helper method. Replay the moves of a position in a new game, so that AI is to move.
+	 * @param moves the columns played so far, from 1
+	 * @return the game, AI to move
+	 */
+	private static Game replay(String moves)
+	{
+		Game game = new Game();
+		game.setFirstPlayer(moves.length() % 2 == 1);
+		for (int i = 0; i < moves.length(); ++i)
+		{
+			char col = moves.charAt(i);
+			if (col < '1' || col > '0' + Game.getColumn())
+				throw new InvalidColumnException("Invalid column " + col);
+			game.placeDisc(col - '1');
+		}
+		return game;
+	}
+}
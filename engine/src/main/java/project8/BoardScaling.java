@@ -0,0 +1,183 @@
+package project8;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * This program reports how the engine scales with the size of the board.
+ * The board size is fixed for a run, so every variant is measured by a new JVM
+ * started with the system properties of the variant. For every variant it prints
+ * the cost of one move as the search makes it (a win check, a move and its take back),
+ * the cost of counting the threats of a move for the move ordering,
+ * the time and the speed of a search of fixed depth, and the depth
+ * reached within the time budget of a move. The positions are random openings,
+ * the same in every run, searched with a new AI and without the endgame solver.
+ * Usage: BoardScaling [moveMillis] [variant ...], a variant being columns x rows,
+ * optionally x the number of discs to link, e.g. 7x6 or 9x7x5
+ * @author YiWang
+ */
+public class BoardScaling {
+	private static final String[] VARIANTS = {"7x6", "7x7", "8x7", "8x8", "9x7", "9x9", "7x6x5", "9x7x5"};	// measured by default
+	private static final String MEASURE = "-measure";	// the argument of the JVM measuring one variant
+	private static final int POSITIONS = 10;			// number of positions searched
+	private static final int DEPTH = 9;					// depth of the fixed-depth search
+	private static final int MOVE_ROUNDS = 20000;		// how many times the moves of every position are made
+
+	/**
+	 * The main method prints one line per variant
+	 * @param args optionally the time budget of a move in milliseconds (default 500),
+	 * then the variants to measure (by default 7x6 up to 9x9, and connect 5)
+	 * @throws IOException if a JVM cannot be started
+	 * @throws InterruptedException if the thread is interrupted while waiting for a JVM
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if (args.length > 0 && args[0].equals(MEASURE))
+		{
+			measure(Duration.ofMillis(Long.parseLong(args[1])));
+			return;
+		}
+		String moveMillis = args.length > 0? args[0] : "500";
+		String[] variants = VARIANTS;
+		if (args.length > 1)
+		{
+			variants = new String[args.length - 1];
+			System.arraycopy(args, 1, variants, 0, variants.length);
+		}
+		System.out.println("variant\tcells\tmove(ns)\tthreats(ns)\tdepth " + DEPTH + "(ms)\tnodes/s\tdepth in " + moveMillis + " ms");
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		for (String variant: variants)
+		{
+			String[] size = variant.split("x");
+			if (size.length < 2 || size.length > 3)
+				throw new IllegalArgumentException("Invalid variant " + variant);
+			Process process = new ProcessBuilder(java, "-Dconnect4.columns=" + size[0], "-Dconnect4.rows=" + size[1],
+					"-Dconnect4.connect=" + (size.length == 3? size[2] : "4"), "-cp", System.getProperty("java.class.path"),
+					BoardScaling.class.getName(), MEASURE, moveMillis).inheritIO().start();
+			if (process.waitFor() != 0)
+				System.out.println(variant + "\tfailed");
+		}
+	}
+
+	/**
+	 * Helper method. Measure the variant of this JVM and print its line.
+	 * @param budget how long the AI may think for one move
+	 */
+	private static void measure(Duration budget)
+	{
+		Position[] positions = openings();
+		moveTime(positions, false);		// warm up the JIT compiler
+		moveTime(positions, true);
+		search(positions, 1);
+		double moveNanos = moveTime(positions, false);
+		double threatNanos = moveTime(positions, true);
+		long start = System.nanoTime();
+		long nodes = search(positions, DEPTH);
+		long searchNanos = System.nanoTime() - start;
+		double depth = 0;
+		for (Position position: positions)
+			depth += newAI(DEPTH).analyze(position, budget).getDepth();
+		System.out.printf("%dx%dx%d\t%d\t%.1f\t%.1f\t%.1f\t%.0f\t%.1f%n", Game.getColumn(), Game.getRow(), Game.getConnect(),
+				Game.getRow() * Game.getColumn(), moveNanos, threatNanos, searchNanos / 1e6 / positions.length,
+				nodes / (searchNanos / 1e9), depth / positions.length);
+	}
+
+	/**
+	 * Helper method. Make the random openings, AI to move and no one able to win at once.
+	 * @return the positions
+	 */
+	private static Position[] openings()
+	{
+		Random random = new Random(42);
+		Position[] positions = new Position[POSITIONS];
+		for (int i = 0; i < POSITIONS; )
+		{
+			Position position = new Position();
+			char player = Game.getHuman();
+			int plies = 4 + random.nextInt(4) * 2;		// an even number, so that AI is to move
+			while (position.numberDisc() < plies)
+			{
+				int col = random.nextInt(Game.getColumn());
+				if (!position.canPlay(col) || position.isWinningMove(col, player))
+					break;
+				position.play(col, player);
+				player = player == Game.getAI()? Game.getHuman() : Game.getAI();
+			}
+			if (position.numberDisc() == plies && !hasWinningMove(position))
+				positions[i++] = position;
+		}
+		return positions;
+	}
+
+	/**
+	 * Helper method. Determine whether AI or HUMAN could win with the next disc.
+	 * @param position the position
+	 * @return true if a player has a winning column, otherwise false
+	 */
+	private static boolean hasWinningMove(Position position)
+	{
+		for (int col = 0; col < Game.getColumn(); ++col)
+			if (position.canPlay(col) && (position.isWinningMove(col, Game.getAI()) || position.isWinningMove(col, Game.getHuman())))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Helper method. Time the moves as the search makes them, or the threat counts of the moves.
+	 * @param positions the positions
+	 * @param threats true to time the threat counts, false to time the moves
+	 * @return the average time of one move or threat count in nanoseconds
+	 */
+	private static double moveTime(Position[] positions, boolean threats)
+	{
+		long moves = 0;
+		long checks = 0;		// used, so that the JIT compiler cannot drop the work
+		long start = System.nanoTime();
+		for (int round = 0; round < MOVE_ROUNDS; ++round)
+			for (Position position: positions)
+				for (int col = 0; col < Game.getColumn(); ++col)
+					if (position.canPlay(col))
+					{
+						if (threats)
+							checks += position.countThreats(col, Game.getAI());
+						else
+						{
+							if (position.isWinningMove(col, Game.getAI()))
+								checks++;
+							position.play(col, Game.getAI());
+							position.undo();
+						}
+						moves++;
+					}
+		long elapsed = System.nanoTime() - start;
+		return checks < 0? -1 : (double) elapsed / moves;
+	}
+
+	/**
+	 * Helper method. Search every position to the depth with a new AI.
+	 * @param positions the positions
+	 * @param depth how deep the positions are searched
+	 * @return the number of nodes searched
+	 */
+	private static long search(Position[] positions, int depth)
+	{
+		long nodes = 0;
+		for (Position position: positions)
+			nodes += newAI(depth).analyze(position).getNodes();
+		return nodes;
+	}
+
+	/**
+	 * Helper method. Create an AI searching to the depth without the endgame solver.
+	 * @param depth how deep the AI searches without a time budget
+	 * @return the AI
+	 */
+	private static GameAI newAI(int depth)
+	{
+		GameAI ai = new GameAI();
+		ai.setMaxDepth(depth);
+		ai.setSolverThreshold(0);
+		return ai;
+	}
+}
@@ -0,0 +1,140 @@
+package project8;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This program builds the opening book offline.
+ * It enumerates every position with AI to move reached within the given number of plies,
+ * whoever plays first, searches each of them deeply and writes the best columns
+ * to a book file that OpeningBook can read.
+ * Usage: BookGenerator file [plies] [depth] [threads]
+ * @author YiWang
+ */
+public class BookGenerator {
+	private static final char AI = Game.getAI();			// AI's disc
+	private static final char HUMAN = Game.getHuman();		// Human's disc
+	private static final int COLUMN = Game.getColumn();		// number of columns of the board
+
+	/**
+	 * The main method generates the book
+	 * @param args the book file, then optionally the number of plies (default 4),
+	 * the search depth (default 14) and the number of threads (default the number of available processors)
+	 * @throws Exception if the book cannot be written or a search fails
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 1)
+		{
+			System.out.println("Usage: BookGenerator file [plies] [depth] [threads]");
+			return;
+		}
+		Path file = Paths.get(args[0]);
+		int plies = args.length > 1? Integer.parseInt(args[1]) : 4;
+		int depth = args.length > 2? Integer.parseInt(args[2]) : 14;
+		int threads = args.length > 3? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		long start = System.nanoTime();
+		Map<Long, String> positions = enumerate(plies);
+		System.out.println(positions.size() + " positions within " + plies + " plies");
+		generate(file, positions, depth, threads);
+		System.out.printf("Book written to %s in %.1f s%n", file, (System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * Find every position with AI to move within the given number of plies.
+	 * A position and its mirror image share their key, so only one of them is kept.
+	 * @param plies how many discs the positions may have
+	 * @return the key of every position mapped to one way of reaching it
+	 */
+	public static Map<Long, String> enumerate(int plies)
+	{
+		Map<Long, String> positions = new LinkedHashMap<Long, String>();
+		enumerate(new Position(), AI, "A", plies, positions);
+		enumerate(new Position(), HUMAN, "H", plies, positions);
+		return positions;
+	}
+
+	/**
+	 * Search every position and write the book
+	 * @param file the book file to write
+	 * @param positions the positions, as returned by enumerate
+	 * @param depth how deep each position is searched
+	 * @param threads number of positions searched at the same time
+	 * @throws IOException if the book cannot be written
+	 * @throws InterruptedException if the thread is interrupted while waiting for the searches
+	 * @throws ExecutionException if a search fails
+	 */
+	public static void generate(Path file, Map<Long, String> positions, int depth, int threads)
+			throws IOException, InterruptedException, ExecutionException
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ThreadLocal<GameAI> ais = ThreadLocal.withInitial(() -> {
+			GameAI ai = new GameAI();
+			ai.setMaxDepth(depth);
+			return ai;
+		});
+		try
+		{
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (String moves: positions.values())
+				results.add(pool.submit(() -> {
+					Game game = replay(moves);
+					return game.getPosition().canonicalColumn(ais.get().chooseColumn(game));
+				}));
+			long[] keys = new long[positions.size()];
+			int[] columns = new int[positions.size()];
+			int i = 0;
+			for (long key: positions.keySet())
+			{
+				keys[i] = key;
+				columns[i] = results.get(i).get();
+				if (++i % 1000 == 0)
+					System.out.println(i + " positions searched");
+			}
+			OpeningBook.write(file, keys, columns);
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Helper method. Recursively collect the positions with AI to move.
+	 * @param board the current position
+	 * @param player who needs to place a disc on the current board now
+	 * @param moves the first player ("A" or "H") followed by the columns played so far
+	 * @param plies how many more discs may be placed
+	 * @param positions the key of every position found so far mapped to its moves
+	 */
+	private static void enumerate(Position board, char player, String moves, int plies, Map<Long, String> positions)
+	{
+		if (player == AI && positions.putIfAbsent(board.key(AI), moves) != null)
+			return;		// already reached through another move order
+		if (plies == 0)
+			return;
+		for (int col = 0; col < COLUMN; ++col)
+			if (board.canPlay(col) && !board.isWinningMove(col, player))
+			{
+				board.play(col, player);
+				enumerate(board, player == AI? HUMAN : AI, moves + col, plies - 1, positions);
+				board.undo();
+			}
+	}
+
+	/**
+	 * Helper method. Replay the moves of a position in a new game.
+	 * @param moves the first player ("A" or "H") followed by the columns played
+	 * @return the game, AI to move
+	 */
+	private static Game replay(String moves)
+	{
+		Game game = new Game();
+		game.setFirstPlayer(moves.charAt(0) == 'H');
+		for (int i = 1; i < moves.length(); ++i)
+			game.placeDisc(moves.charAt(i) - '0');
+		return game;
+	}
+}
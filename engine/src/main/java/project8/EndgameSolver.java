@@ -0,0 +1,336 @@
+package project8;
+
+/**
+ * This class solves Connect 4 positions exactly. Unlike the depth-limited GameAI
+ * search it looks all the way to the end of the game, so it proves whether the
+ * player to move wins, loses or draws, and how soon the game ends.
+ * The score is found by a binary search of null-window negamax searches, which
+ * share one transposition table. Each null-window search only decides whether the
+ * score is above a guess, which prunes far more than a search with a wide window.
+ * Scores are seen from the player to move: a win with the n-th disc on the board
+ * scores ROW * COLUMN + 1 - n, a loss scores the negation and a draw scores 0,
+ * so quicker wins and slower losses score higher.
+ * @author YiWang
+ */
+public class EndgameSolver {
+	private static final char AI = Game.getAI();			// AI's disc
+	private static final char HUMAN = Game.getHuman();		// Human's disc
+	private static final int ROW = Game.getRow();			// number of rows of the board
+	private static final int COLUMN = Game.getColumn();		// number of columns of the board
+	private static final int SIZE = ROW * COLUMN;			// number of cells of the board
+	private static final int[] ORDER = Position.middleFirst();	// the order to try the columns, middle first
+	private static final int CHECK_INTERVAL = 1024;		// how many nodes are searched between two deadline checks
+
+	private final TranspositionTable table;				// bounds of the positions solved so far
+	// candidate columns of every search node, indexed by the number of discs on its board, so that solving allocates nothing
+	private final int[][] moveLists = new int[SIZE][COLUMN];
+	private final int[] moveScores = new int[COLUMN];	// the ordering scores of the columns being ordered
+	private long nodes;									// number of nodes searched by the last solve
+	private long deadline = Long.MAX_VALUE;				// System.nanoTime() when solving must stop
+	private volatile boolean stopped;					// true if solving has to stop
+	private int score;									// the exact score of the last solved position
+	private Tablebase tablebase;						// exact scores of endgame positions, null if there is none
+	private int tablebaseEmpties = -1;					// positions with at most this many empty cells are looked up
+
+	/**
+	 * Default constructor
+	 */
+	public EndgameSolver()
+	{
+		this(new TranspositionTable());
+	}
+
+	/**
+	 * Constructor with the transposition table to use.
+	 * The table must not be shared with a GameAI, whose scores mean something else.
+	 * @param table the transposition table
+	 */
+	public EndgameSolver(TranspositionTable table)
+	{
+		this.table = table;
+	}
+
+	/**
+	 * Set the tablebase looked up before solving a position with few enough empty cells
+	 * @param tablebase the tablebase; null to always solve
+	 */
+	public void setTablebase(Tablebase tablebase)
+	{
+		this.tablebase = tablebase;
+		tablebaseEmpties = tablebase == null? -1 : tablebase.getMaxEmpties();
+	}
+
+	/**
+	 * Solve the position and find a column reaching its exact score.
+	 * The game on the board must not be over.
+	 * @param board the position to solve, it is left unchanged
+	 * @param player the player to move, AI or HUMAN
+	 * @param deadline System.nanoTime() when solving must stop, Long.MAX_VALUE for no limit
+	 * @return the best column, meaningless if solving was stopped
+	 */
+	public int solve(Position board, char player, long deadline)
+	{
+		stopped = false;
+		this.deadline = deadline;
+		nodes = 0;
+		table.nextGeneration();		// the entries of earlier positions may be replaced
+		int numDisc = board.numberDisc();
+		for (int col: ORDER)
+			if (board.canPlay(col) && board.isWinningMove(col, player))
+			{
+				score = SIZE - numDisc;
+				return col;
+			}
+		// binary search on the score, each probe a null-window search
+		int min = -(SIZE - numDisc);
+		int max = SIZE - numDisc;
+		while (min < max && !stopped)
+		{
+			int guess = min + (max - min) / 2;
+			if (guess <= 0 && min / 2 < guess)			// probe near 0 first, most positions are close to a draw
+				guess = min / 2;
+			else if (guess >= 0 && max / 2 > guess)
+				guess = max / 2;
+			int result = negamax(board, player, guess, guess + 1);
+			if (result <= guess)
+				max = result;
+			else
+				min = result;
+		}
+		score = min;
+		return stopped? -1 : bestColumn(board, player);
+	}
+
+	/**
+	 * Get the exact score of the position solved last
+	 * @return the score from the view of the player to move, meaningless if solving was stopped
+	 */
+	public int getScore()
+	{
+		return score;
+	}
+
+	/**
+	 * Get the number of nodes searched by the last solve
+	 * @return the number of nodes searched
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+
+	/**
+	 * Get the transposition table of the solver, e.g. to follow its best moves
+	 * @return the transposition table
+	 */
+	public TranspositionTable getTable()
+	{
+		return table;
+	}
+
+	/**
+	 * Determine whether the last solve was stopped before it proved the score
+	 * @return true if solving was stopped, otherwise false
+	 */
+	public boolean isStopped()
+	{
+		return stopped;
+	}
+
+	/**
+	 * Stop solving as soon as possible. May be called from any thread.
+	 */
+	public void stop()
+	{
+		stopped = true;
+	}
+
+	/**
+	 * Helper method. Find the first column whose sub-board reaches the score of the position.
+	 * Every column is verified with a null-window search, which the transposition table makes cheap.
+	 * In a symmetric position the mirrored columns are skipped, they score the same.
+	 * @param board the solved position
+	 * @param player the player to move
+	 * @return the best column
+	 */
+	private int bestColumn(Position board, char player)
+	{
+		char opponent = player == AI? HUMAN : AI;
+		int resultColumn = -1;
+		for (int col: ORDER)
+		{
+			if (!board.canPlay(col) || (board.isSymmetric() && col > (COLUMN - 1) / 2))
+				continue;
+			if (resultColumn == -1)
+				resultColumn = col;		// every column is as bad if solving is stopped now
+			if (board.numberDisc() + 1 == SIZE)
+				return col;				// the last cell, a draw
+			board.play(col, player);
+			int childScore = -negamax(board, opponent, -score, -score + 1);
+			board.undo();
+			if (stopped)
+				break;
+			if (childScore >= score)
+				return col;
+		}
+		return resultColumn;
+	}
+
+	/**
+	 * Helper method.
+	 * Recursively find the score of the position with fail-soft alpha-beta pruning.
+	 * The score is first narrowed by what the position allows and by the transposition table,
+	 * so that most null-window searches are cut off before trying any column.
+	 * @param board the current position, the game must not be over
+	 * @param player who needs to place a disc on the current board now
+	 * @param alpha the score the player is already assured of
+	 * @param beta the score the opponent is already assured of, negated
+	 * @return the score of the position if it is between alpha and beta, otherwise a bound beyond them;
+	 * meaningless if solving was stopped
+	 */
+	private int negamax(Position board, char player, int alpha, int beta)
+	{
+		if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline)
+			stopped = true;
+		if (stopped)
+			return 0;
+		int numDisc = board.numberDisc();
+		char opponent = player == AI? HUMAN : AI;
+		int forced = -1;		// the column the player has to play to stop the opponent winning
+		for (int col = 0; col < COLUMN; ++col)
+			if (board.canPlay(col))
+			{
+				if (board.isWinningMove(col, player))
+					return SIZE - numDisc;
+				if (board.isWinningMove(col, opponent))
+				{
+					if (forced != -1)
+						return -(SIZE - numDisc - 1);	// two threats cannot both be stopped
+					forced = col;
+				}
+			}
+		if (numDisc + 1 == SIZE)
+			return 0;			// the last cell does not win, a draw
+		if (SIZE - numDisc <= tablebaseEmpties)
+		{
+			int exact = tablebase.probe(board, player);
+			if (exact != Tablebase.UNKNOWN)
+				return exact;
+		}
+		int[] moves = moveLists[numDisc];
+		long key = board.key(player);
+		long entry = table.probe(key);
+		int numMoves = candidateMoves(board, player, forced, board.canonicalColumn(TranspositionTable.move(entry)), moves);
+		if (numMoves == 0)
+			return -(SIZE - numDisc - 1);	// every column lets the opponent win on top of it
+		// the player cannot win with this disc, nor lose before the opponent's second disc
+		int maxScore = SIZE - numDisc - 2;
+		int minScore = Math.min(-(SIZE - numDisc - 3), 0);	// with two cells left the game is a draw
+		if (entry != 0)
+		{
+			int entryScore = (int) TranspositionTable.score(entry);
+			int bound = TranspositionTable.bound(entry);
+			if (bound == TranspositionTable.EXACT)
+				return entryScore;
+			if (bound == TranspositionTable.LOWER)
+				minScore = Math.max(minScore, entryScore);
+			else
+				maxScore = Math.min(maxScore, entryScore);
+		}
+		if (beta > maxScore)
+		{
+			beta = maxScore;
+			if (alpha >= beta)
+				return beta;
+		}
+		if (alpha < minScore)
+		{
+			alpha = minScore;
+			if (alpha >= beta)
+				return alpha;
+		}
+		int bestScore = Integer.MIN_VALUE;
+		int bestMove = -1;
+		int alphaOrigin = alpha;
+		for (int i = 0; i < numMoves; ++i)
+		{
+			int col = moves[i];
+			board.play(col, player);
+			int childScore = -negamax(board, opponent, -beta, -alpha);
+			board.undo();
+			if (childScore > bestScore)
+			{
+				bestScore = childScore;
+				bestMove = col;
+			}
+			if (bestScore > alpha)
+				alpha = bestScore;
+			if (alpha >= beta)
+				break;
+		}
+		if (stopped)	// the score is not reliable, do not store it
+			return bestScore;
+		int bound = TranspositionTable.EXACT;
+		if (bestScore <= alphaOrigin)
+			bound = TranspositionTable.UPPER;
+		else if (bestScore >= beta)
+			bound = TranspositionTable.LOWER;
+		table.store(key, bestScore, SIZE - numDisc, bound, board.canonicalColumn(bestMove));
+		return bestScore;
+	}
+
+	/**
+	 * Helper method. Get the columns worth trying, in the order to try them.
+	 * A column right below a cell where the opponent would win is left out,
+	 * since any other column is at least as good. The columns are ordered as in the canonical position,
+	 * and in a symmetric position only one of each pair of mirrored columns is returned.
+	 * @param board the current position
+	 * @param player who needs to place a disc on the current board now
+	 * @param forced the only column to consider, -1 if the player may choose
+	 * @param first the column to try first, e.g. the best column stored in the transposition table; -1 if there is none
+	 * @param result the array to fill with the columns
+	 * @return the number of columns stored in result
+	 */
+	private int candidateMoves(Position board, char player, int forced, int first, int[] result)
+	{
+		char opponent = player == AI? HUMAN : AI;
+		if (forced != -1)
+		{
+			result[0] = forced;
+			return givesWin(board, forced, player, opponent)? 0 : 1;
+		}
+		int count = 0;
+		for (int canonical: ORDER)
+		{
+			int col = board.canonicalColumn(canonical);
+			if (!board.canPlay(col) || (board.isSymmetric() && col > (COLUMN - 1) / 2) || givesWin(board, col, player, opponent))
+				continue;
+			int threats = col == first? COLUMN * ROW : board.countThreats(col, player);
+			int i = count++;
+			for (; i > 0 && moveScores[i - 1] < threats; --i)	// insertion sort, at most COLUMN columns
+			{
+				moveScores[i] = moveScores[i - 1];
+				result[i] = result[i - 1];
+			}
+			moveScores[i] = threats;
+			result[i] = col;
+		}
+		return count;
+	}
+
+	/**
+	 * Helper method. Determine whether the opponent could win right on top of the player's disc.
+	 * @param board the current position
+	 * @param col a playable column
+	 * @param player who places the disc
+	 * @param opponent the other player
+	 * @return true if the opponent wins by placing a disc on top of it, otherwise false
+	 */
+	private boolean givesWin(Position board, int col, char player, char opponent)
+	{
+		board.play(col, player);
+		boolean result = board.canPlay(col) && board.isWinningMove(col, opponent);
+		board.undo();
+		return result;
+	}
+}
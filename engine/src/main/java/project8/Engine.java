@@ -0,0 +1,52 @@
+package project8;
+import java.time.Duration;
+
+/**
+ * An engine choosing the AI's columns, so that the game, the server or a tournament
+ * can play with any of them: GameAI searches with minimax, MctsAI with Monte Carlo tree search.
+ * The AI must be the player to move in the game passed.
+ * @author YiWang
+ */
+public interface Engine {
+	/**
+	 * AI chooses a column to place its disc according to the game, with the engine's own effort,
+	 * e.g. the search depth of GameAI or the number of playouts of MctsAI
+	 * @param game connect four Game object
+	 * @return the column where the AI chooses to place it disc
+	 */
+	int chooseColumn(Game game);
+
+	/**
+	 * AI chooses a column to place its disc within the time budget
+	 * @param game connect four Game object
+	 * @param budget how long the AI may think
+	 * @return the column where the AI chooses to place it disc
+	 */
+	int chooseColumn(Game game, Duration budget);
+
+	/**
+	 * AI chooses a column like chooseColumn(Game), and reports what the search did
+	 * @param game connect four Game object
+	 * @return the chosen column and the statistics of the search
+	 */
+	SearchStats analyze(Game game);
+
+	/**
+	 * AI chooses a column like chooseColumn(Game, Duration), and reports what the search did
+	 * @param game connect four Game object
+	 * @param budget how long the AI may think
+	 * @return the chosen column and the statistics of the search
+	 */
+	SearchStats analyze(Game game, Duration budget);
+
+	/**
+	 * Stop the current search as soon as possible; it then returns the best column found so far.
+	 * May be called from any thread.
+	 */
+	void stop();
+
+	/**
+	 * Stop the threads of the engine, if any. The engine can still be used afterwards.
+	 */
+	void shutdown();
+}
@@ -0,0 +1,106 @@
+package project8;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Running counters over all searches of the GameAI instances it listens to.
+ * The counters can be read directly or through JMX after calling register.
+ * Several AIs on different threads may share one instance.
+ * @author YiWang
+ */
+public class EngineMetrics implements SearchListener, EngineMetricsMBean {
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder leafEvaluations = new LongAdder();
+	private final LongAdder cutoffs = new LongAdder();
+	private final LongAdder firstMoveCutoffs = new LongAdder();
+	private final LongAdder searchNanos = new LongAdder();
+	private final LongAccumulator maxSearchNanos = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Register the counters with the platform MBean server
+	 * @param name the JMX object name, e.g. "project8:type=EngineMetrics"
+	 * @throws JMException if the name is invalid or already registered
+	 */
+	public void register(String name) throws JMException
+	{
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+	}
+
+	@Override
+	public void searchFinished(SearchStats stats)
+	{
+		searches.increment();
+		nodes.add(stats.getNodes());
+		leafEvaluations.add(stats.getLeafEvaluations());
+		cutoffs.add(stats.getTotalCutoffs());
+		firstMoveCutoffs.add(stats.getFirstMoveCutoffs());
+		long nanos = stats.getElapsed().toNanos();
+		searchNanos.add(nanos);
+		maxSearchNanos.accumulate(nanos);
+	}
+
+	@Override
+	public long getSearches()
+	{
+		return searches.sum();
+	}
+
+	@Override
+	public long getNodes()
+	{
+		return nodes.sum();
+	}
+
+	@Override
+	public long getLeafEvaluations()
+	{
+		return leafEvaluations.sum();
+	}
+
+	@Override
+	public long getCutoffs()
+	{
+		return cutoffs.sum();
+	}
+
+	@Override
+	public long getFirstMoveCutoffs()
+	{
+		return firstMoveCutoffs.sum();
+	}
+
+	@Override
+	public long getSearchMillis()
+	{
+		return searchNanos.sum() / 1000000;
+	}
+
+	@Override
+	public long getMaxSearchMillis()
+	{
+		return maxSearchNanos.get() / 1000000;
+	}
+
+	@Override
+	public double getNodesPerSecond()
+	{
+		long nanos = searchNanos.sum();
+		return nanos == 0? 0 : nodes.sum() * 1e9 / nanos;
+	}
+
+	@Override
+	public void reset()
+	{
+		searches.reset();
+		nodes.reset();
+		leafEvaluations.reset();
+		cutoffs.reset();
+		firstMoveCutoffs.reset();
+		searchNanos.reset();
+		maxSearchNanos.reset();
+	}
+}
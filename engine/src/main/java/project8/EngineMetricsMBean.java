@@ -0,0 +1,34 @@
+package project8;
+
+/**
+ * The JMX view of EngineMetrics
+ * @author YiWang
+ */
+public interface EngineMetricsMBean {
+	/** @return number of searches finished */
+	long getSearches();
+
+	/** @return number of nodes searched */
+	long getNodes();
+
+	/** @return number of boards evaluated at the search horizon */
+	long getLeafEvaluations();
+
+	/** @return number of beta cutoffs */
+	long getCutoffs();
+
+	/** @return number of beta cutoffs by the first column tried */
+	long getFirstMoveCutoffs();
+
+	/** @return total time spent searching, in milliseconds */
+	long getSearchMillis();
+
+	/** @return the longest search, in milliseconds */
+	long getMaxSearchMillis();
+
+	/** @return nodes searched per second of search time */
+	double getNodesPerSecond();
+
+	/** Set every counter back to 0 */
+	void reset();
+}
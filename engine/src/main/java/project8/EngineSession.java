@@ -0,0 +1,135 @@
+package project8;
+import java.time.Duration;
+
+/**
+ * This class ties one AI to one game for the whole game.
+ * Both players' moves, the AI's included, are played through the session, so the session
+ * keeps its own position up to date move by move instead of reading the board again,
+ * and the AI keeps its transposition table, history and pondered replies from move to move.
+ * Entries of earlier moves stay in the table until newer searches need their slots.
+ * @author YiWang
+ */
+public class EngineSession implements AutoCloseable {
+	private final Game game;			// the game played
+	private final GameAI ai;			// the AI playing the game
+	private final Position position;	// the position of the game, updated with every move
+	private boolean pondering;			// true if the AI ponders during the human's turns
+	private SearchStats lastSearch;		// the statistics of the AI's last move, null before its first move
+
+	/**
+	 * Constructor with the game to play
+	 * @param game the game, from now on only changed through this session
+	 */
+	public EngineSession(Game game)
+	{
+		this(game, new GameAI());
+	}
+
+	/**
+	 * Constructor with the game to play and the AI playing it
+	 * @param game the game, from now on only changed through this session
+	 * @param ai the AI, e.g. with an opening book or several threads
+	 */
+	public EngineSession(Game game, GameAI ai)
+	{
+		this.game = game;
+		this.ai = ai;
+		position = game.getPosition();
+	}
+
+	/**
+	 * Set whether the AI ponders on the human's replies after its own moves are played
+	 * @param pondering true to ponder; false by default
+	 */
+	public void setPondering(boolean pondering)
+	{
+		this.pondering = pondering;
+		if (!pondering)
+			ai.stopPondering();
+	}
+
+	/**
+	 * Get the game played
+	 * @return the game
+	 */
+	public Game getGame()
+	{
+		return game;
+	}
+
+	/**
+	 * Get the statistics of the AI's last move
+	 * @return the statistics, null if the AI has not moved yet
+	 */
+	public SearchStats getLastSearch()
+	{
+		return lastSearch;
+	}
+
+	/**
+	 * Drop a disc of the player to move into the column.
+	 * After a move of the AI, the AI starts pondering if enabled.
+	 * @param col the column, in the range between 0 to Game.getColumn() - 1 inclusively
+	 * @throws InvalidColumnException if the column is out of bounds or full; nothing is played then
+	 * @throws GameOverException if the move ends the game; the move is played
+	 */
+	public void play(int col) throws InvalidColumnException, GameOverException
+	{
+		char player = game.getTurn();
+		try
+		{
+			game.placeDisc(col);
+		}
+		catch (GameOverException e)
+		{
+			position.play(col, player);
+			throw e;
+		}
+		position.play(col, player);
+		if (pondering && player == Game.getAI())
+			ai.ponder(game);
+	}
+
+	/**
+	 * Let the AI choose its column, searching as deep as the AI's maximum depth.
+	 * The column is not played, pass it to play(int) for that.
+	 * @return the column chosen by the AI
+	 */
+	public int think()
+	{
+		checkTurn();
+		lastSearch = ai.analyze(position);
+		return lastSearch.getColumn();
+	}
+
+	/**
+	 * Let the AI choose its column within the time budget.
+	 * The column is not played, pass it to play(int) for that.
+	 * @param budget how long the AI may think
+	 * @return the column chosen by the AI
+	 */
+	public int think(Duration budget)
+	{
+		checkTurn();
+		lastSearch = ai.analyze(position, budget);
+		return lastSearch.getColumn();
+	}
+
+	/**
+	 * Stop pondering and the AI's threads. The session can still be used afterwards.
+	 */
+	@Override
+	public void close()
+	{
+		ai.shutdown();
+	}
+
+	/**
+	 * Helper method. Make sure the AI is to move.
+	 */
+	private void checkTurn()
+	{
+		if (game.getTurn() != Game.getAI())
+			throw new IllegalStateException("It is not the AI's turn");
+	}
+}
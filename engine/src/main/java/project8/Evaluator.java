@@ -0,0 +1,238 @@
+package project8;
+import java.util.Arrays;
+
+/**
+ * This class evaluates the performance of a board for the GameAI search.
+ * The board is split into the windows of CONNECT cells that can hold a link,
+ * 69 windows of 4 cells on the usual board.
+ * A window without HUMAN's discs scores 1 for each AI disc on one of its two
+ * end cells, and the other way round for HUMAN. CONNECT - 1 discs in a row with an
+ * empty cell on both sides (_XXX_) score extra, more on lower rows, taking
+ * account of the odd even row advantage.
+ * The disc counts of every window are kept up to date when a disc is placed
+ * or taken back, so getting the score of a board costs nothing.
+ * @author YiWang
+ */
+public class Evaluator {
+	private static final char AI = Game.getAI();			// AI's disc
+	private static final char EMPTY = Game.getEmpty();		// an empty cell on the board
+	private static final int ROW = Game.getRow();			// number of rows of the board
+	private static final int COLUMN = Game.getColumn();		// number of columns of the board
+	private static final int CONNECT = Game.getConnect();	// number of discs to link
+	private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};	// (row, column) steps of the 4 line directions
+
+	// Every entry of CELL_WINDOWS is (window << 1 | 1 if the cell is an end cell of the window)
+	private static final int[][] CELL_WINDOWS = new int[ROW * COLUMN][];
+	// Every entry of CELL_SPANS is (span << 1 | 1 if the cell is a middle cell of the span)
+	private static final int[][] CELL_SPANS = new int[ROW * COLUMN][];
+	private static final int[] SPAN_WEIGHT;					// the extra score of a _XXX_ span, CONNECT + 1 cells long
+	private static final int NUMBER_WINDOWS;
+	private static final int NUMBER_SPANS;
+
+	static
+	{
+		int[][] cellWindows = new int[ROW * COLUMN][DIRECTIONS.length * CONNECT];
+		int[] cellWindowCount = new int[ROW * COLUMN];
+		int windows = 0;
+		for (int[] direction: DIRECTIONS)
+			for (int row = 0; row < ROW; ++row)
+				for (int col = 0; col < COLUMN; ++col)
+				{
+					int endRow = row + (CONNECT - 1) * direction[0];
+					int endCol = col + (CONNECT - 1) * direction[1];
+					if (endRow >= ROW || endCol < 0 || endCol >= COLUMN)
+						continue;
+					for (int k = 0; k < CONNECT; ++k)
+					{
+						int cell = (row + k * direction[0]) * COLUMN + col + k * direction[1];
+						cellWindows[cell][cellWindowCount[cell]++] = windows << 1 | (k == 0 || k == CONNECT - 1? 1 : 0);
+					}
+					windows++;
+				}
+		int[][] cellSpans = new int[ROW * COLUMN][CONNECT + 1];
+		int[] cellSpanCount = new int[ROW * COLUMN];
+		int[] spanWeight = new int[ROW * Math.max(COLUMN - CONNECT, 0)];
+		int spans = 0;
+		for (int row = 0; row < ROW; ++row)
+			for (int col = 0; col + CONNECT < COLUMN; ++col)
+			{
+				for (int k = 0; k <= CONNECT; ++k)
+				{
+					int cell = row * COLUMN + col + k;
+					cellSpans[cell][cellSpanCount[cell]++] = spans << 1 | (k == 0 || k == CONNECT? 0 : 1);
+				}
+				// counted once from each end of the three discs, row 0 being the top row as in Game.getBoard()
+				spanWeight[spans++] = 2 * (row + 1);
+			}
+		for (int cell = 0; cell < ROW * COLUMN; ++cell)
+		{
+			CELL_WINDOWS[cell] = Arrays.copyOf(cellWindows[cell], cellWindowCount[cell]);
+			CELL_SPANS[cell] = Arrays.copyOf(cellSpans[cell], cellSpanCount[cell]);
+		}
+		SPAN_WEIGHT = spanWeight;
+		NUMBER_WINDOWS = windows;
+		NUMBER_SPANS = spans;
+	}
+
+	private final int[][] windowDiscs = new int[2][NUMBER_WINDOWS];	// number of discs of AI (0) and HUMAN (1) in each window
+	private final int[][] windowEnds = new int[2][NUMBER_WINDOWS];	// number of discs of AI and HUMAN on the end cells of each window
+	private final int[][] spanMiddle = new int[2][NUMBER_SPANS];	// number of discs of AI and HUMAN on the middle cells of each span
+	private final int[] spanEnds = new int[NUMBER_SPANS];			// number of discs on the end cells of each span
+	private long score;												// the score of the board, positive when AI is better
+
+	/**
+	 * Start over from the discs of the position
+	 * @param board the position to evaluate
+	 */
+	public void reset(Position board)
+	{
+		for (int player = 0; player < 2; ++player)
+		{
+			Arrays.fill(windowDiscs[player], 0);
+			Arrays.fill(windowEnds[player], 0);
+			Arrays.fill(spanMiddle[player], 0);
+		}
+		Arrays.fill(spanEnds, 0);
+		score = 0;
+		for (int row = 0; row < ROW; ++row)
+			for (int col = 0; col < COLUMN; ++col)
+			{
+				char cell = board.cell(row, col);
+				if (cell != EMPTY)
+					place(row, col, cell);
+			}
+	}
+
+	/**
+	 * Get the score of the board
+	 * @return the number of possible links for AI minus the number of possible links for HUMAN
+	 */
+	public long score()
+	{
+		return score;
+	}
+
+	/**
+	 * Get the score the board would have after the player drops a disc into the column,
+	 * without placing the disc. This is what place, score and remove give, at the cost of
+	 * reading the windows and spans through the new disc once.
+	 * @param board the position the evaluator is up to date with
+	 * @param col a column that is not full
+	 * @param player the player dropping the disc, AI or HUMAN
+	 * @return the score of the board one disc further
+	 */
+	public long childScore(Position board, int col, char player)
+	{
+		return score + placeChange((ROW - 1 - board.columnHeight(col)) * COLUMN + col, player == AI? 0 : 1);
+	}
+
+	/**
+	 * Update the score after a disc is placed
+	 * @param row the row of the disc, 0 being the top row as in Game.getBoard()
+	 * @param col the column of the disc
+	 * @param player the player of the disc, AI or HUMAN
+	 */
+	public void place(int row, int col, char player)
+	{
+		update(row * COLUMN + col, player == AI? 0 : 1, 1);
+	}
+
+	/**
+	 * Update the score after a disc is taken back
+	 * @param row the row of the disc, 0 being the top row as in Game.getBoard()
+	 * @param col the column of the disc
+	 * @param player the player of the disc, AI or HUMAN
+	 */
+	public void remove(int row, int col, char player)
+	{
+		update(row * COLUMN + col, player == AI? 0 : 1, -1);
+	}
+
+	/**
+	 * Helper method. Update the windows and spans through the cell.
+	 * @param cell the cell, row * COLUMN + col
+	 * @param player 0 for AI, 1 for HUMAN
+	 * @param change 1 if the disc is placed, -1 if it is taken back
+	 */
+	private void update(int cell, int player, int change)
+	{
+		for (int entry: CELL_WINDOWS[cell])
+		{
+			int window = entry >> 1;
+			score -= windowScore(window);
+			windowDiscs[player][window] += change;
+			windowEnds[player][window] += (entry & 1) * change;
+			score += windowScore(window);
+		}
+		for (int entry: CELL_SPANS[cell])
+		{
+			int span = entry >> 1;
+			score -= spanScore(span);
+			if ((entry & 1) == 1)
+				spanMiddle[player][span] += change;
+			else
+				spanEnds[span] += change;
+			score += spanScore(span);
+		}
+	}
+
+	/**
+	 * Helper method. Calculate how much the score would change if a disc was placed on the empty cell.
+	 * @param cell the cell, row * COLUMN + col
+	 * @param player 0 for AI, 1 for HUMAN
+	 * @return the score after placing the disc minus the score now
+	 */
+	private long placeChange(int cell, int player)
+	{
+		int opponent = 1 - player;
+		long sign = player == 0? 1 : -1;
+		long change = 0;
+		for (int entry: CELL_WINDOWS[cell])
+		{
+			int window = entry >> 1;
+			if (windowDiscs[opponent][window] != 0)	// the window is blocked by the new disc
+				change -= windowScore(window);
+			else
+				change += sign * (entry & 1);
+		}
+		for (int entry: CELL_SPANS[cell])
+		{
+			int span = entry >> 1;
+			if ((entry & 1) == 0)	// the new disc closes an end of the span
+				change -= spanScore(span);
+			else if (spanEnds[span] == 0 && spanMiddle[player][span] == CONNECT - 2)	// the middle cell was the last empty one
+				change += sign * SPAN_WEIGHT[span];
+		}
+		return change;
+	}
+
+	/**
+	 * Helper method. Calculate the score of a window
+	 * @param window the window
+	 * @return the score of AI's possible link minus the score of HUMAN's possible link
+	 */
+	private long windowScore(int window)
+	{
+		if (windowDiscs[1][window] == 0)
+			return windowEnds[0][window];
+		if (windowDiscs[0][window] == 0)
+			return -windowEnds[1][window];
+		return 0;
+	}
+
+	/**
+	 * Helper method. Calculate the extra score of a span of CONNECT + 1 cells in a row
+	 * @param span the span
+	 * @return the extra score if the span is _XXX_ for AI or HUMAN, otherwise 0
+	 */
+	private long spanScore(int span)
+	{
+		if (spanEnds[span] != 0)
+			return 0;
+		if (spanMiddle[0][span] == CONNECT - 1)
+			return SPAN_WEIGHT[span];
+		if (spanMiddle[1][span] == CONNECT - 1)
+			return -SPAN_WEIGHT[span];
+		return 0;
+	}
+}
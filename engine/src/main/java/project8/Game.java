@@ -27,18 +27,22 @@ class GameOverException extends IllegalArgumentException
 
 /** 
  * This class represents the game logic and the UI of Connect 4.
- * It is a 6 row x 7 column board game.
+ * It is a 6 row x 7 column board game by default. Other variants are chosen when the
+ * program starts with the system properties connect4.rows, connect4.columns and
+ * connect4.connect (the number of discs to link), e.g. -Dconnect4.rows=8 -Dconnect4.columns=8.
+ * All games of one run are played on the same variant.
  * @author YiWang
  */
 public class Game {
 	private char FIRST;							// who is the first player
 	private char TURN;							// who should place the disc now
-	private char[][] board;						// 2-D array of char representing the board
+	private Position position;					// bitboard representation of the board
 	private static final char EMPTY = ' ';		// an empty cell on the board
 	private static final char AI = 'O';			// AI's disc
 	private static final char HUMAN = 'X';		// Human's disc
-	private static final int ROW = 6;			// number of rows of the board
-	private static final int COLUMN = 7;			// number of columns of the board
+	private static final int COLUMN = dimension("connect4.columns", 7, 1, 9);	// number of columns of the board
+	private static final int ROW = dimension("connect4.rows", 6, 1, 16);			// number of rows of the board
+	private static final int CONNECT = dimension("connect4.connect", 4, 2, Math.max(ROW, COLUMN));	// number of discs to link
 	
 	/**
 	 * Default constructor, setting human playing first and AI playing second
@@ -47,14 +51,7 @@ public class Game {
 	{
 		TURN = HUMAN;
 		FIRST = TURN;
-		board = new char[ROW][COLUMN];
-		for (int i = 0; i < ROW; ++i)
-		{
-			char[] rowArray = new char[COLUMN];
-			for (int j = 0; j < COLUMN; ++j)
-				rowArray[j] = EMPTY;
-			board[i] = rowArray;
-		}
+		position = new Position();
 	}
 	
 	/**
@@ -68,12 +65,22 @@ public class Game {
 	}
 	
 	/**
-	 * Return the current board
+	 * Return a char[][] view of the current board.
+	 * Changing the returned array does not change the game.
 	 * @return the current board
 	 */
 	public char[][] getBoard()
 	{
-		return board;
+		return position.toBoard();
+	}
+
+	/**
+	 * Return a copy of the current position
+	 * @return the current position
+	 */
+	public Position getPosition()
+	{
+		return new Position(position);
 	}
 	
 	/**
@@ -139,52 +146,59 @@ public class Game {
 		return COLUMN;
 	}
 
+	/**
+	 * Get the number of discs a player has to link to win
+	 * @return the number of discs to link
+	 */
+	public static int getConnect()
+	{
+		return CONNECT;
+	}
+
 	/**
 	 * Display the current game board to the console.
 	 */
 	public void display()
 	{
-		for (char[] rowArray: board)
+		for (char[] rowArray: getBoard())
 		{
 			System.out.print("|");
 			for (char cell: rowArray)
 				System.out.print(cell + "|");
 			System.out.println();
 		}
-		System.out.println("---------------");	
-		System.out.println(" 1 2 3 4 5 6 7");
+		StringBuilder line = new StringBuilder("-");
+		StringBuilder numbers = new StringBuilder();
+		for (int col = 1; col <= COLUMN; ++col)
+		{
+			line.append("--");
+			numbers.append(" ").append(col);
+		}
+		System.out.println(line);
+		System.out.println(numbers);
 	}
 	
 	/**
 	 * place a disc to the column. InvalidColumnException will be thrown
 	 * if the column is out of bounds or the column is full
-	 * @param col the column the current player wants to drop. Assume to be in the range between 0 to 6 inclusively.
+	 * @param col the column the current player wants to drop. Assume to be in the range between 0 to COLUMN - 1 inclusively.
 	 */
 	public void placeDisc(int col) throws InvalidColumnException, GameOverException
 	{
 		if (col < 0 || col > COLUMN - 1)
 			throw new InvalidColumnException("Invalid Column Index");
-		for (int row = ROW - 1; row > -1; --row)
+		if (!position.canPlay(col))
+			throw new InvalidColumnException("Column is already full.");
+		position.play(col, TURN);
+		if (position.lastMoveWon())
 		{
-			if(board[row][col] == EMPTY)
-			{
-				board[row][col] = TURN;
-				int gameOver = isGameOver(board);
-				if (gameOver > -1)
-				{
-					if(gameOver == 1)
-					{
-						if (TURN  == HUMAN)
-							throw new GameOverException("Game Over! The winner is Human Player.");
-						throw new GameOverException("Game Over! The winner is AI.");
-					}
-					throw new GameOverException("Game Over! It is a tie.");
-				}
-				flipTurn();
-				return;
-			}
+			if (TURN  == HUMAN)
+				throw new GameOverException("Game Over! The winner is Human Player.");
+			throw new GameOverException("Game Over! The winner is AI.");
 		}
-		throw new InvalidColumnException("Column is already full.");
+		if (position.isFull())
+			throw new GameOverException("Game Over! It is a tie.");
+		flipTurn();
 	}
 
 	/**
@@ -194,13 +208,23 @@ public class Game {
 	 */
 	public static int isGameOver(char[][] board)
 	{
-		for(int i = 0; i < ROW; ++i)
-			for(int j = 0; j< COLUMN; ++j)
-				if(numberLinked(i, j, board) != 0)
-					return 1;
-		if (isBoardFull(board))
-			return 0;
-		return -1;
+		return Position.fromBoard(board).isGameOver();
+	}
+
+	/**
+	 * Helper method used for reading a board dimension from a system property.
+	 * @param property the name of the system property
+	 * @param defaultValue the value if the property is not set
+	 * @param min the smallest valid value
+	 * @param max the largest valid value
+	 * @return the value of the property
+	 */
+	private static int dimension(String property, int defaultValue, int min, int max)
+	{
+		int value = Integer.getInteger(property, defaultValue);
+		if (value < min || value > max)
+			throw new IllegalArgumentException(property + " must be between " + min + " and " + max);
+		return value;
 	}
 
 	/**
@@ -213,68 +237,4 @@ public class Game {
 		else
 			TURN = HUMAN;
 	}
-	
-	/**
-	 * Helper method used for determining whether the board is full or not
-	 * @param board char[][] representing the game board
-	 * @return true if the board is full, otherwise false.
-	 */
-	private static boolean isBoardFull(char[][] board)
-	{
-		for (char topCell: board[0])
-			if (topCell == EMPTY)
-				return false;
-		return true;
-	}
-	
-	/**
-	 * Helper method used for determining how many directions of 
-	 * the current position is linked (same 4 player's discs) on the game board.
-	 * There are 8 possible directions for any position.
-	 * @param row the row of the current position
-	 * @param col the column of the current position
-	 * @param board char[][] representing the game board
-	 * @return the number of links of the current position
-	 */
-	private static int numberLinked(int row, int col, char[][] board)
-	{
-		int result = 0;
-		if (isDirectionLinked(board, row, col, 1, 1))
-			result += 1;
-		if (isDirectionLinked(board, row, col, 1, 0))
-			result += 1;
-		if (isDirectionLinked(board, row, col, 1, -1))
-			result += 1;
-		if (isDirectionLinked(board, row, col, 0, 1))
-			result += 1;
-		if (isDirectionLinked(board, row, col, 0, -1))
-			result += 1;
-		if (isDirectionLinked(board, row, col, -1, 1))
-			result += 1;
-		if (isDirectionLinked(board, row, col, -1, 0))
-			result += 1;
-		if (isDirectionLinked(board, row, col, -1, -1))
-			result += 1;
-		return result;
-	}
-	
-	/**
-	 * Helper method used for checking if there are same 4 discs linked at specified direction
-	 * @param board char[][] representing the game board
-	 * @param row the row of the current position
-	 * @param col the column of the current position
-	 * @param delRow row direction, should be -1, 0, or 1
-	 * @param delCol column direction, should be -1, 0, or 1
-	 * @return true if there are 4 discs linked, otherwise false
-	 */
-	private static boolean isDirectionLinked(char[][] board, int row, int col, int delRow, int delCol)
-	{
-		int actualLinked = 0;
-		for (int i = row, j = col; i > -1 && j > -1 && i < ROW && j < COLUMN && actualLinked < 4; i += delRow, j += delCol, ++actualLinked)
-			if (board[i][j] == EMPTY || board[i][j] != board[row][col])
-				return false;
-		if (actualLinked == 4)
-			return true;
-		return false;
-	}
 }
@@ -0,0 +1,1323 @@
+package project8;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class is the Connect 4 AI.
+ * It uses minimax algorithm with alpha-beta pruning
+ * as game strategies. The max depth to look up is 11.
+ * With more than one thread it runs a Lazy SMP search: helper threads search
+ * the same position and share their results through the transposition table,
+ * while the calling thread makes the decision.
+ * Once few enough cells are empty, the position is solved exactly by an
+ * EndgameSolver instead, which proves the result of the game.
+ * While the human thinks, the AI can ponder: search the human's possible replies
+ * in the background, so that the search after the actual reply starts ahead.
+ * @author YiWang
+ */
+public class GameAI implements Engine {
+	private static final char AI = Game.getAI();			// AI's disc
+	private static final char HUMAN =  Game.getHuman();	// Human's disc
+	private static final int ROW = Game.getRow();			// number of rows of the board
+	private static final int COLUMN = Game.getColumn();	// number of columns of the board
+	private static final int MAXDEPTH = 11;				// How deep should the minimax with alpha-beta pruning go
+	private static final int[] ORDER = Position.middleFirst();	// the order to try the columns, middle first
+	
+	private static final int CHECK_INTERVAL = 1024;		// how many nodes are searched between two deadline checks
+	private static final int SOLVER_EMPTIES = 28;		// the solver takes over with at most this many empty cells
+	// ordering scores of the columns: a threat outweighs the column's place in ORDER and its history together
+	private static final int THREAT_WEIGHT = 1 << 20;	// ordering score of every threat made by the column
+	private static final int CENTRE_WEIGHT = 1 << 12;	// ordering score of every place nearer the front of ORDER
+	private static final int HISTORY_LIMIT = 1 << 18;	// the history scores are halved when one grows beyond this
+	// the score swings between odd and even depths, so a depth looks first for a score close to that of two depths before
+	private static final int ASPIRATION_WINDOW = 1;		// how far from the guessed score the search looks first
+	private static final int ASPIRATION_LIMIT = 256;	// a window wider than this is opened completely
+	private static final long NO_SCORE = Long.MIN_VALUE;	// no score is known to guess from
+	private static final int CACHE_DEPTH = 6;			// positions searched at least this deep go to the position cache
+	private final TranspositionTable table;				// positions searched so far, shared with the helper threads
+	private final int threads;							// number of threads searching, including the calling thread
+	private ExecutorService helperPool;					// runs the helper searches, created on first use
+	private long nodes;									// number of nodes searched by the current search
+	private long deadline = Long.MAX_VALUE;				// System.nanoTime() when the current search must stop
+	private volatile boolean stopped;					// true if the current search has to stop
+	private Future<?> helperTask;						// the search of a helper instance running on a helper thread
+	private GameAI[] helpers;							// the helper searches, created on first use
+	// legal columns of every search node, indexed by the number of discs on its board, so that searching allocates nothing
+	private final int[][] moveLists = new int[ROW * COLUMN][COLUMN];
+	private final Evaluator evaluator = new Evaluator();	// the score of the searched position, updated with every move
+	private long leaves;								// number of boards evaluated at the horizon by the current search
+	private final long[] cutoffs = new long[ROW * COLUMN];	// number of beta cutoffs at each ply of the current search
+	private long firstMoveCutoffs;						// number of beta cutoffs by the first column tried
+	// how much dropping a disc of each player on each cell caused beta cutoffs, kept from search to search
+	private final int[][] history = new int[2][ROW * COLUMN];
+	private final int[] moveScores = new int[COLUMN];	// the ordering scores of the columns being ordered
+	private int rootDisc;								// number of discs on the board the current search started from
+	private long rootScore;								// the score of the column returned by the last bestColumn call
+	private final long[] rootScores = new long[COLUMN];	// the score of every column in the last bestColumn call
+	private final int[] rootBounds = new int[COLUMN];	// how the score of every column is known, SearchUpdate.NOT_SEARCHED if it is not
+	private SearchListener listener;					// notified about every search, null if there is none
+	private boolean exactColumnScores;					// true if every column at the root is searched with the whole window
+	private int maxDepth = MAXDEPTH;					// how deep chooseColumn(Game) searches
+	private OpeningBook book;							// the columns to play in the opening, null if there is none
+	private volatile EndgameSolver solver;				// solves the endgame exactly, created on first use
+	private int solverThreshold = SOLVER_EMPTIES;		// the solver takes over with at most this many empty cells
+	private Tablebase tablebase;						// exact scores of endgame positions, null if there is none
+	private int tablebaseEmpties = -1;					// positions with at most this many empty cells are looked up
+	private PositionCache cache;						// deep search results kept across processes, null if there is none
+	private ExecutorService ponderPool;					// runs the ponder search, created on first use
+	private GameAI ponderer;							// searches the human's replies while pondering, created on first use
+	private Future<?> ponderTask;						// the running ponder search, null if there is none
+	// the positions after the human's replies searched by the ponder search, and the deepest completed search of each
+	private final Position[] ponderPositions = new Position[COLUMN];
+	private final int[] ponderDepths = new int[COLUMN];		// depth of the deepest completed search, 0 if none
+	private final int[] ponderColumns = new int[COLUMN];	// the best column found, -1 if none
+	private final long[] ponderScores = new long[COLUMN];	// the score of the best column
+	private final long[] ponderOlderScores = new long[COLUMN];	// the score of the depth before, NO_SCORE if none
+	private final long[] ponderNanos = new long[COLUMN];	// how long the position was searched
+	private final boolean[] ponderSolved = new boolean[COLUMN];	// true if the position was solved exactly by the solver
+	private int ponderCount;							// number of positions searched by the ponder search
+	
+	/**
+	 * Default constructor
+	 */
+	public GameAI()
+	{
+		this(new TranspositionTable());
+	}
+	
+	/**
+	 * Constructor with the transposition table to use
+	 * @param table the transposition table, e.g. with a different size or replacement policy
+	 */
+	public GameAI(TranspositionTable table)
+	{
+		this(table, 1);
+	}
+	
+	/**
+	 * Constructor with the transposition table and the number of threads to use.
+	 * With one thread the search is deterministic.
+	 * @param table the transposition table, e.g. with a different size or replacement policy
+	 * @param threads number of threads searching, e.g. Runtime.getRuntime().availableProcessors()
+	 */
+	public GameAI(TranspositionTable table, int threads)
+	{
+		if (threads < 1)
+			throw new IllegalArgumentException("Invalid number of threads");
+		this.table = table;
+		this.threads = threads;
+	}
+	
+	/**
+	 * Set how deep chooseColumn(Game) and analyze(Game) search
+	 * @param maxDepth the search depth, at least 1; 11 by default
+	 */
+	public void setMaxDepth(int maxDepth)
+	{
+		if (maxDepth < 1)
+			throw new IllegalArgumentException("Invalid depth");
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Set the opening book. Positions in the book are answered without searching.
+	 * @param book the opening book; null to always search
+	 */
+	public void setOpeningBook(OpeningBook book)
+	{
+		this.book = book;
+	}
+
+	/**
+	 * Set when the endgame solver takes over from the depth-limited search.
+	 * The solver looks to the end of the game, so its results are exact,
+	 * but it takes much longer the more cells are empty.
+	 * @param empties the solver is used with at most this many empty cells; 28 by default, 0 to never use it
+	 */
+	public void setSolverThreshold(int empties)
+	{
+		if (empties < 0)
+			throw new IllegalArgumentException("Invalid number of empty cells");
+		solverThreshold = empties;
+	}
+
+	/**
+	 * Set the tablebase. The search and the endgame solver look up the exact score
+	 * of every position with few enough empty cells instead of searching it.
+	 * @param tablebase the tablebase; null to always search
+	 */
+	public void setTablebase(Tablebase tablebase)
+	{
+		this.tablebase = tablebase;
+		tablebaseEmpties = tablebase == null? -1 : tablebase.getMaxEmpties();
+		if (solver != null)
+			solver.setTablebase(tablebase);
+	}
+
+	/**
+	 * Set the position cache. The search looks up every position it is to search
+	 * deep enough in the cache, and stores its result there, so the result is found
+	 * by later searches of any process using the same cache file.
+	 * @param cache the position cache; null to keep the results only in the transposition table
+	 */
+	public void setPositionCache(PositionCache cache)
+	{
+		this.cache = cache;
+	}
+
+	/**
+	 * Set whether the search proves the exact score of every column, not only of the best one.
+	 * Usually every column after the first is only shown to be no better than the best so far,
+	 * so the updates of the SearchListener only tell an upper bound of its score.
+	 * Searching every column with the whole window makes each score exact, but takes longer.
+	 * @param exact true to prove the score of every column; false by default
+	 */
+	public void setExactColumnScores(boolean exact)
+	{
+		exactColumnScores = exact;
+	}
+
+	/**
+	 * Set the listener notified about every search, and about every completed depth while searching
+	 * @param listener the listener, e.g. an EngineMetrics; null to remove it
+	 */
+	public void setSearchListener(SearchListener listener)
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * AI chooses a column to place its disc according to the game
+	 * @param game connect four Game object
+	 * @return the column where the AI chooses to place it disc
+	 */
+	@Override
+	public int chooseColumn(Game game)
+	{
+		return analyze(game).getColumn();
+	}
+
+	/**
+	 * AI chooses a column to place its disc within the time budget.
+	 * The search is deepened one ply at a time, trying the best column of the previous
+	 * depth first, and the result of the deepest completed search is returned.
+	 * @param game connect four Game object
+	 * @param budget how long the AI may think
+	 * @return the column where the AI chooses to place it disc
+	 */
+	@Override
+	public int chooseColumn(Game game, Duration budget)
+	{
+		return analyze(game, budget).getColumn();
+	}
+
+	/**
+	 * AI chooses a column to place its disc according to the game, like chooseColumn(Game),
+	 * and reports what the search did.
+	 * @param game connect four Game object
+	 * @return the chosen column and the statistics of the search
+	 */
+	@Override
+	public SearchStats analyze(Game game)
+	{
+		return analyze(game.getPosition());
+	}
+
+	/**
+	 * AI chooses a column to place its disc on the position, like analyze(Game).
+	 * The position is changed during the search, but left as it was.
+	 * @param board the position, AI to move
+	 * @return the chosen column and the statistics of the search
+	 */
+	SearchStats analyze(Position board)
+	{
+		long start = System.nanoTime();
+		int hit = ponderHit(board);
+		int bookMove = book == null? -1 : book.lookup(board);
+		if (bookMove != -1)
+			return finishSearch(board, bookMove, 0, 0, start);
+		if (hit != -1 && (ponderer.ponderSolved[hit] || ponderer.ponderDepths[hit] >= maxDepth))
+			return ponderResult(board, hit, start);
+		table.nextGeneration();		// the entries of earlier moves may be replaced
+		if (cache != null)
+			cache.tick();
+		startSearch(board);
+		if (ROW * COLUMN - board.numberDisc() <= solverThreshold)
+		{
+			SearchStats stats = solveExactly(board, Long.MAX_VALUE, start);
+			if (stats != null)
+				return stats;
+			stopped = false;	// stopped by stop() while solving, choose with a search of depth 1
+			int resultColumn = bestColumn(board, 1, -1);
+			notifyDepth(board, resultColumn, rootScore, 1, start);
+			return finishSearch(board, resultColumn, rootScore, 1, start);
+		}
+		startHelpers(board, maxDepth);
+		int resultColumn = -1;
+		long resultScore = 0;
+		int resultDepth = 0;
+		// a listener may ask to be told about every depth, then the depths are searched in turn; otherwise maxDepth at once
+		for (int depth = listener != null && listener.reportEveryDepth()? 1 : maxDepth; depth <= maxDepth; ++depth)
+		{
+			int col = bestColumn(board, depth, resultColumn);
+			if (stopped)
+				break;
+			resultColumn = col;
+			resultScore = rootScore;
+			resultDepth = depth;
+			notifyDepth(board, resultColumn, resultScore, resultDepth, start);
+			if (Math.abs(resultScore) > Integer.MAX_VALUE - ROW * COLUMN - 1)	// the game result is already known
+				break;
+		}
+		stopHelpers();
+		if (resultDepth == 0)		// stopped by stop(), the search did not get far enough to choose
+		{
+			stopped = false;
+			resultColumn = bestColumn(board, 1, -1);
+			resultScore = rootScore;
+			resultDepth = 1;
+			notifyDepth(board, resultColumn, resultScore, resultDepth, start);
+		}
+		return finishSearch(board, resultColumn, resultScore, resultDepth, start);
+	}
+
+	/**
+	 * AI chooses a column to place its disc within the time budget, like chooseColumn(Game, Duration),
+	 * and reports what the search did.
+	 * In the endgame the solver gets the first half of the budget; if it cannot prove
+	 * the result in time, the depth-limited search uses the rest.
+	 * If the position was pondered, the search goes on from the deepest pondered depth,
+	 * and the time pondered on it counts towards the budget.
+	 * @param game connect four Game object
+	 * @param budget how long the AI may think
+	 * @return the chosen column and the statistics of the search
+	 */
+	@Override
+	public SearchStats analyze(Game game, Duration budget)
+	{
+		return analyze(game.getPosition(), budget);
+	}
+
+	/**
+	 * AI chooses a column to place its disc on the position within the time budget, like analyze(Game, Duration).
+	 * The position is changed during the search, but left as it was.
+	 * @param board the position, AI to move
+	 * @param budget how long the AI may think
+	 * @return the chosen column and the statistics of the search
+	 */
+	SearchStats analyze(Position board, Duration budget)
+	{
+		long start = System.nanoTime();
+		int hit = ponderHit(board);
+		int bookMove = book == null? -1 : book.lookup(board);
+		if (bookMove != -1)
+			return finishSearch(board, bookMove, 0, 0, start);
+		if (hit != -1 && ponderer.ponderSolved[hit])
+			return ponderResult(board, hit, start);
+		table.nextGeneration();		// the entries of earlier moves may be replaced
+		if (cache != null)
+			cache.tick();
+		startSearch(board);
+		if (ROW * COLUMN - board.numberDisc() <= solverThreshold)
+		{
+			SearchStats stats = solveExactly(board, start + budget.toNanos() / 2, start);
+			if (stats != null)
+				return stats;
+		}
+		int resultColumn;
+		long resultScore;
+		long olderScore;		// the score of the depth before resultDepth, NO_SCORE if it was not searched
+		int resultDepth;
+		long timeLeft = budget.toNanos();
+		if (hit != -1 && ponderer.ponderDepths[hit] > 0)	// go on from the pondered search
+		{
+			resultColumn = ponderer.ponderColumns[hit];
+			resultScore = ponderer.ponderScores[hit];
+			olderScore = ponderer.ponderOlderScores[hit];
+			resultDepth = ponderer.ponderDepths[hit];
+			timeLeft -= ponderer.ponderNanos[hit];
+		}
+		else
+		{
+			boolean interrupted = stopped;		// stop() was called while solving
+			stopped = false;
+			resultColumn = bestColumn(board, 1, -1);	// always have a column to return
+			stopped = interrupted;
+			resultScore = rootScore;
+			olderScore = NO_SCORE;
+			resultDepth = 1;
+			notifyDepth(board, resultColumn, resultScore, resultDepth, start);
+		}
+		deadline = start + timeLeft;
+		startHelpers(board, ROW * COLUMN - board.numberDisc());
+		for (int depth = resultDepth + 1; depth <= ROW * COLUMN - board.numberDisc(); ++depth)
+		{
+			if (Math.abs(resultScore) > Integer.MAX_VALUE - ROW * COLUMN - 1)	// the game result is already known
+				break;
+			int col = aspirationSearch(board, depth, resultColumn, olderScore);
+			if (stopped)
+				break;
+			olderScore = resultScore;
+			resultColumn = col;
+			resultScore = rootScore;
+			resultDepth = depth;
+			notifyDepth(board, resultColumn, resultScore, resultDepth, start);
+		}
+		stopHelpers();
+		return finishSearch(board, resultColumn, resultScore, resultDepth, start);
+	}
+
+	/**
+	 * Get the number of nodes searched by the last search, including the helper threads
+	 * @return the number of nodes searched
+	 */
+	public long getNodes()
+	{
+		long result = 0;
+		for (GameAI searcher: searchers())
+			result += searcher.nodes;
+		return result;
+	}
+
+	/**
+	 * Stop the current search as soon as possible.
+	 * chooseColumn(Game, Duration) then returns the result of the deepest completed search.
+	 * chooseColumn(Game) does the same if the SearchListener asks for every depth, since the depths are then
+	 * searched in turn; otherwise it returns the result of a search of depth 1 if its search was not finished.
+	 * A stopped endgame solver also leaves the result of a search of depth 1.
+	 * May be called from any thread, or from the SearchListener when it is told about a completed depth.
+	 */
+	@Override
+	public void stop()
+	{
+		stopped = true;
+		EndgameSolver endgameSolver = solver;
+		if (endgameSolver != null)
+			endgameSolver.stop();
+	}
+
+	/**
+	 * Start pondering: search the position after every reply of the human in the background,
+	 * the most likely reply first, until the next search or stopPondering().
+	 * The next search takes over the result of the reply actually played,
+	 * and all the replies fill the transposition table for it.
+	 * @param game the game, human to move; nothing is pondered otherwise
+	 */
+	public void ponder(Game game)
+	{
+		stopPondering();
+		Position board = game.getPosition();
+		if (game.getTurn() != HUMAN || board.lastMoveWon() || board.isFull())
+			return;
+		if (ponderPool == null)
+			ponderPool = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "GameAI ponder");
+				thread.setDaemon(true);
+				return thread;
+			});
+		if (ponderer == null)
+			ponderer = new GameAI(table);
+		ponderer.setTablebase(tablebase);
+		ponderer.setPositionCache(cache);
+		ponderer.stopped = false;
+		ponderer.deadline = Long.MAX_VALUE;
+		ponderer.nodes = 0;
+		ponderer.ponderCount = 0;
+		ponderTask = ponderPool.submit(ponderer.ponderSearch(board, solverThreshold));
+	}
+
+	/**
+	 * Stop pondering and wait until the ponder search has stopped.
+	 * The next search does this by itself.
+	 */
+	public void stopPondering()
+	{
+		if (ponderTask == null)
+			return;
+		while (true)
+		{
+			ponderer.stop();	// again and again, in case the solver started after the last stop
+			try
+			{
+				ponderTask.get(1, TimeUnit.MILLISECONDS);
+				break;
+			}
+			catch (TimeoutException e)
+			{
+				// not stopped yet
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				break;
+			}
+			catch (ExecutionException | CancellationException e)
+			{
+				break;		// the ponder search only prepares the next search, its failure does not matter
+			}
+		}
+		ponderTask = null;
+	}
+
+	/**
+	 * Stop the helper and ponder threads, if any. The AI can still be used afterwards,
+	 * the threads are started again by the next search.
+	 */
+	@Override
+	public void shutdown()
+	{
+		stopPondering();
+		if (helperPool != null)
+			helperPool.shutdownNow();
+		helperPool = null;
+		if (ponderPool != null)
+			ponderPool.shutdownNow();
+		ponderPool = null;
+	}
+
+	/**
+	 * Helper method. Start the helper threads of the Lazy SMP search.
+	 * Every helper deepens its own search of the position up to maxDepth,
+	 * starting from a different depth and root column so that the helpers
+	 * do not all search the same nodes in the same order.
+	 * @param board the current position, AI to move
+	 * @param maxDepth the deepest search a helper starts
+	 */
+	private void startHelpers(Position board, int maxDepth)
+	{
+		if (threads == 1)
+			return;
+		if (helperPool == null)
+			helperPool = Executors.newFixedThreadPool(threads - 1, runnable -> {
+				Thread thread = new Thread(runnable, "GameAI helper");
+				thread.setDaemon(true);
+				return thread;
+			});
+		if (helpers == null)
+		{
+			helpers = new GameAI[threads - 1];
+			for (int i = 0; i < helpers.length; ++i)
+			{
+				helpers[i] = new GameAI(table);
+				helpers[i].startSearch(board);		// startSearch ran before the helpers existed
+			}
+		}
+		for (int i = 1; i < threads; ++i)
+		{
+			GameAI helper = helpers[i - 1];
+			helper.setTablebase(tablebase);
+			helper.setPositionCache(cache);
+			helper.helperTask = helperPool.submit(helper.helperSearch(new Position(board), maxDepth, 1 + i % 2, ORDER[i % COLUMN]));
+		}
+	}
+
+	/**
+	 * Helper method. Reset the state of the search before searching the position.
+	 * @param board the position to search, AI to move
+	 */
+	private void startSearch(Position board)
+	{
+		stopped = false;
+		deadline = Long.MAX_VALUE;
+		resetCounts();
+		for (int[] playerHistory: history)		// older searches count less
+			for (int cell = 0; cell < playerHistory.length; ++cell)
+				playerHistory[cell] /= 2;
+		rootDisc = board.numberDisc();
+		evaluator.reset(board);
+		if (helpers != null)		// so that a search without helpers does not count their last search
+			for (GameAI helper: helpers)
+				helper.startSearch(board);
+	}
+
+	/**
+	 * Helper method. Start counting the nodes, leaves and cutoffs of a new search from 0.
+	 */
+	private void resetCounts()
+	{
+		nodes = 0;
+		leaves = 0;
+		Arrays.fill(cutoffs, 0);
+		firstMoveCutoffs = 0;
+	}
+
+	/**
+	 * Helper method. Solve the position exactly with the endgame solver.
+	 * The exact score is reported on the scale of minMaxBoard: a win or loss
+	 * with the n-th disc scores like the win found by the search, a draw scores 0.
+	 * @param board the position to solve, AI to move
+	 * @param deadline System.nanoTime() when solving must stop
+	 * @param start System.nanoTime() when the search started
+	 * @return the statistics of the search, null if solving was stopped
+	 */
+	private SearchStats solveExactly(Position board, long deadline, long start)
+	{
+		if (solver == null)
+			solver = newSolver();
+		if (stopped)
+			return null;
+		int column = solver.solve(board, AI, deadline);
+		nodes += solver.getNodes();
+		if (solver.isStopped())
+			return null;
+		long score = exactScore(solver.getScore());
+		Arrays.fill(rootBounds, SearchUpdate.NOT_SEARCHED);
+		rootScores[column] = score;
+		rootBounds[column] = TranspositionTable.EXACT;
+		notifyDepth(board, column, score, ROW * COLUMN - board.numberDisc(), start);
+		return finishSearch(board, column, score, ROW * COLUMN - board.numberDisc(), start, solver.getTable());
+	}
+
+	/**
+	 * Helper method. Create the endgame solver, looking up the tablebase if there is one.
+	 * @return the solver
+	 */
+	private EndgameSolver newSolver()
+	{
+		EndgameSolver result = new EndgameSolver();
+		result.setTablebase(tablebase);
+		return result;
+	}
+
+	/**
+	 * Helper method. Convert a score of the endgame solver to the scale of minMaxBoard:
+	 * a win or loss with the n-th disc scores like the win found by the search, a draw scores 0.
+	 * @param score the exact score from the solver or the tablebase, seen from AI
+	 * @return the same score on the scale of the search
+	 */
+	private static long exactScore(int score)
+	{
+		if (score > 0)
+			return Integer.MAX_VALUE - (ROW * COLUMN + 1 - score);
+		if (score < 0)
+			return Integer.MIN_VALUE + (ROW * COLUMN + 1 + score);
+		return 0;
+	}
+
+	/**
+	 * Helper method. Stop pondering and find the position among the pondered ones.
+	 * The pondered results are used at most once. A pondered reply may be the mirror image
+	 * of the position, then its column is mirrored too.
+	 * @param board the position about to be searched, AI to move
+	 * @return the index of the position in the results of the ponderer, -1 if it was not pondered
+	 */
+	private int ponderHit(Position board)
+	{
+		stopPondering();
+		if (ponderer == null)
+			return -1;
+		int result = -1;
+		long key = board.key(AI);
+		for (int i = 0; i < ponderer.ponderCount && result == -1; ++i)
+			if (ponderer.ponderPositions[i].key(AI) == key)
+				result = i;
+		ponderer.ponderCount = 0;
+		if (result != -1)
+		{
+			int col = ponderer.ponderPositions[result].canonicalColumn(ponderer.ponderColumns[result]);
+			ponderer.ponderColumns[result] = board.canonicalColumn(col);
+		}
+		return result;
+	}
+
+	/**
+	 * Helper method. Report the pondered result of the position as the result of the search.
+	 * Nothing was searched for it, so no nodes, leaves or cutoffs are reported,
+	 * rather than the counts of the search before.
+	 * @param board the searched position, AI to move
+	 * @param hit the index of the position in the results of the ponderer
+	 * @param start System.nanoTime() when the search started
+	 * @return the statistics of the search
+	 */
+	private SearchStats ponderResult(Position board, int hit, long start)
+	{
+		for (GameAI searcher: searchers())
+			searcher.resetCounts();
+		return finishSearch(board, ponderer.ponderColumns[hit], ponderer.ponderScores[hit], ponderer.ponderDepths[hit], start,
+				ponderer.ponderSolved[hit]? ponderer.solver.getTable() : table);
+	}
+
+	/**
+	 * Helper method. Create the ponder search run on the ponder thread.
+	 * The reply searched for the shortest time so far is always deepened next, so that every reply
+	 * gets about the same time, and the predicted reply twice as much.
+	 * @param board the current position, human to move
+	 * @param solverThreshold the solver is used with at most this many empty cells
+	 * @return the search to run on the ponder thread
+	 */
+	private Runnable ponderSearch(Position board, int solverThreshold)
+	{
+		return () -> {
+			int predicted = board.canonicalColumn(TranspositionTable.move(table.probe(board.key(HUMAN))));
+			int predictedIndex = -1;	// the index of the predicted reply in the ponder results, -1 if it is not pondered
+			for (int i = -1; i < COLUMN; ++i)
+			{
+				int col = i == -1? predicted : ORDER[i];
+				if (col == -1 || (i != -1 && col == predicted) || !board.canPlay(col) || board.isWinningMove(col, HUMAN))
+					continue;
+				if (board.isSymmetric() && col > (COLUMN - 1) / 2)
+					continue;		// the mirrored reply is pondered instead
+				Position reply = new Position(board);
+				reply.play(col, HUMAN);
+				if (reply.isFull())
+					continue;
+				ponderPositions[ponderCount] = reply;
+				ponderDepths[ponderCount] = 0;
+				ponderColumns[ponderCount] = -1;
+				ponderOlderScores[ponderCount] = NO_SCORE;
+				ponderNanos[ponderCount] = 0;
+				ponderSolved[ponderCount] = false;
+				if (i == -1)
+					predictedIndex = ponderCount;
+				ponderCount++;
+			}
+			while (!stopped)
+			{
+				int next = -1;		// the reply searched for the shortest time so far
+				for (int i = 0; i < ponderCount; ++i)
+				{
+					int empties = ROW * COLUMN - ponderPositions[i].numberDisc();
+					if (ponderSolved[i] || ponderDepths[i] >= empties
+							|| Math.abs(ponderScores[i]) > Integer.MAX_VALUE - ROW * COLUMN - 1)	// the game result is already known
+						continue;
+					if (next == -1 || ponderTime(i, predictedIndex) < ponderTime(next, predictedIndex))
+						next = i;
+				}
+				if (next == -1)
+					break;
+				ponderDeeper(next, solverThreshold);
+			}
+		};
+	}
+
+	/**
+	 * Helper method. Get how long a reply was pondered, counting the predicted reply half,
+	 * so that it is pondered twice as long as any other.
+	 * @param i the index of the reply in the ponder results
+	 * @param predictedIndex the index of the predicted reply in the ponder results, -1 if it is not pondered
+	 * @return the time the reply was pondered, weighted
+	 */
+	private long ponderTime(int i, int predictedIndex)
+	{
+		return i == predictedIndex? ponderNanos[i] / 2 : ponderNanos[i];
+	}
+
+	/**
+	 * Helper method. Search a reply of the ponder search one depth deeper than before,
+	 * or solve it exactly if it has few enough empty cells.
+	 * @param i the index of the reply in the ponder results
+	 * @param solverThreshold the solver is used with at most this many empty cells
+	 */
+	private void ponderDeeper(int i, int solverThreshold)
+	{
+		Position reply = ponderPositions[i];
+		int empties = ROW * COLUMN - reply.numberDisc();
+		long start = System.nanoTime();
+		if (empties <= solverThreshold)
+		{
+			if (solver == null)
+				solver = newSolver();
+			int col = solver.solve(reply, AI, Long.MAX_VALUE);
+			if (!solver.isStopped())
+			{
+				ponderColumns[i] = col;
+				ponderScores[i] = exactScore(solver.getScore());
+				ponderDepths[i] = empties;
+				ponderSolved[i] = true;
+			}
+		}
+		else
+		{
+			rootDisc = reply.numberDisc();
+			evaluator.reset(reply);
+			int col = aspirationSearch(reply, ponderDepths[i] + 1, ponderColumns[i], ponderOlderScores[i]);
+			if (!stopped)
+			{
+				ponderOlderScores[i] = ponderDepths[i] == 0? NO_SCORE : ponderScores[i];
+				ponderColumns[i] = col;
+				ponderScores[i] = rootScore;
+				ponderDepths[i]++;
+			}
+		}
+		ponderNanos[i] += System.nanoTime() - start;
+	}
+
+	/**
+	 * Helper method. Tell the listener about a completed depth, with the scores of the columns
+	 * from the last bestColumn call. In a symmetric position a column scores as its mirror image.
+	 * @param board the searched position, AI to move
+	 * @param column the best column
+	 * @param score the score of the best column
+	 * @param depth the completed depth
+	 * @param start System.nanoTime() when the search started
+	 */
+	private void notifyDepth(Position board, int column, long score, int depth, long start)
+	{
+		if (listener == null)
+			return;
+		long[] scores = rootScores.clone();
+		int[] bounds = rootBounds.clone();
+		if (board.isSymmetric())
+			for (int col = (COLUMN - 1) / 2 + 1; col < COLUMN; ++col)
+			{
+				scores[col] = scores[COLUMN - 1 - col];
+				bounds[col] = bounds[COLUMN - 1 - col];
+			}
+		listener.depthCompleted(new SearchUpdate(column, score, depth, scores, bounds, getNodes(), Duration.ofNanos(System.nanoTime() - start)));
+	}
+
+	/**
+	 * Helper method. Collect the statistics of the finished search and notify the listener.
+	 * @param board the searched position, AI to move
+	 * @param column the chosen column
+	 * @param score the score of the chosen column
+	 * @param depth the deepest completed search, 0 if there was no search
+	 * @param start System.nanoTime() when the search started
+	 * @return the statistics of the search
+	 */
+	private SearchStats finishSearch(Position board, int column, long score, int depth, long start)
+	{
+		return finishSearch(board, column, score, depth, start, table);
+	}
+
+	/**
+	 * Helper method. Collect the statistics of the finished search and notify the listener.
+	 * @param board the searched position, AI to move
+	 * @param column the chosen column
+	 * @param score the score of the chosen column
+	 * @param depth the deepest completed search, 0 if there was no search
+	 * @param start System.nanoTime() when the search started
+	 * @param source the transposition table holding the best moves of the search
+	 * @return the statistics of the search
+	 */
+	private SearchStats finishSearch(Position board, int column, long score, int depth, long start, TranspositionTable source)
+	{
+		long totalNodes = 0;
+		long totalLeaves = 0;
+		long totalFirstMoveCutoffs = 0;
+		long[] totalCutoffs = new long[ROW * COLUMN];
+		if (depth > 0)
+			for (GameAI searcher: searchers())
+			{
+				totalNodes += searcher.nodes;
+				totalLeaves += searcher.leaves;
+				totalFirstMoveCutoffs += searcher.firstMoveCutoffs;
+				for (int ply = 0; ply < totalCutoffs.length; ++ply)
+					totalCutoffs[ply] += searcher.cutoffs[ply];
+			}
+		SearchStats stats = new SearchStats(column, score, depth, totalNodes, totalLeaves, totalCutoffs, totalFirstMoveCutoffs,
+				Duration.ofNanos(System.nanoTime() - start), principalVariation(board, column, depth, source));
+		if (listener != null)
+			listener.searchFinished(stats);
+		return stats;
+	}
+
+	/**
+	 * Helper method. Get this AI and its helper searches, if any.
+	 * @return the instances that searched the last position
+	 */
+	private List<GameAI> searchers()
+	{
+		List<GameAI> result = new ArrayList<GameAI>();
+		result.add(this);
+		if (helpers != null)
+			result.addAll(Arrays.asList(helpers));
+		return result;
+	}
+
+	/**
+	 * Helper method. Follow the best moves stored in the transposition table from the chosen column.
+	 * @param board the searched position, AI to move
+	 * @param column the chosen column
+	 * @param depth the deepest completed search
+	 * @param source the transposition table holding the best moves of the search
+	 * @return the principal variation, starting with the chosen column
+	 */
+	private int[] principalVariation(Position board, int column, int depth, TranspositionTable source)
+	{
+		int[] result = new int[Math.max(depth, 1)];
+		Position line = new Position(board);
+		char player = AI;
+		int length = 0;
+		int col = column;
+		while (true)
+		{
+			result[length++] = col;
+			if (line.isWinningMove(col, player))
+				break;
+			line.play(col, player);
+			player = player == AI? HUMAN : AI;
+			if (length == result.length || line.isFull())
+				break;
+			col = line.canonicalColumn(TranspositionTable.move(source.probe(line.key(player))));
+			if (col == -1 || !line.canPlay(col))
+				break;
+		}
+		return Arrays.copyOf(result, length);
+	}
+
+	/**
+	 * Helper method. Stop the helper threads of the Lazy SMP search and wait for them to finish.
+	 */
+	private void stopHelpers()
+	{
+		if (threads == 1)
+			return;
+		for (GameAI helper: helpers)
+			helper.stop();
+		for (GameAI helper: helpers)
+		{
+			try
+			{
+				helper.helperTask.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch (ExecutionException | CancellationException e)
+			{
+				// the helper only fills the shared table, its result is not needed
+			}
+		}
+	}
+
+	/**
+	 * Helper method. Create the search run by a helper thread.
+	 * @param board the position to search, AI to move
+	 * @param maxDepth the deepest search to start
+	 * @param startDepth the first depth to search
+	 * @param first the root column to try first
+	 * @return the search to run on a helper thread
+	 */
+	private Runnable helperSearch(Position board, int maxDepth, int startDepth, int first)
+	{
+		return () -> {
+			long resultScore = NO_SCORE;	// the score of the last depth searched
+			long olderScore = NO_SCORE;		// the score of the depth before
+			for (int depth = startDepth; depth <= maxDepth && !stopped; ++depth)
+			{
+				aspirationSearch(board, depth, first, olderScore);
+				olderScore = resultScore;
+				resultScore = rootScore;
+			}
+		};
+	}
+
+	/**
+	 * Helper method. Find the best column for the AI with an aspiration window:
+	 * the search only looks for a score close to the guess,
+	 * and is repeated with a wider window on the side where the score fell outside.
+	 * @param board the current position, AI to move
+	 * @param depth how deep should the AI consider, including the AI's move
+	 * @param first the best column of the previous depth; -1 to use the transposition table
+	 * @param guess the score two depths shallower, which ends its search with the same player to move;
+	 * NO_SCORE to search with the whole window
+	 * @return the best column to place, meaningless if the search was stopped
+	 */
+	private int aspirationSearch(Position board, int depth, int first, long guess)
+	{
+		if (guess == NO_SCORE || Math.abs(guess) > Integer.MAX_VALUE - ROW * COLUMN - 1	// nothing to guess from, or a known result
+				|| exactColumnScores)
+			return bestColumn(board, depth, first);
+		long alpha = guess - ASPIRATION_WINDOW;
+		long beta = guess + ASPIRATION_WINDOW;
+		for (long widening = ASPIRATION_WINDOW * 2; ; widening *= 4)
+		{
+			int col = bestColumn(board, depth, first, alpha, beta);
+			if (stopped || (rootScore > alpha && rootScore < beta))
+				return col;
+			if (rootScore <= alpha)
+				alpha = widening > ASPIRATION_LIMIT? Integer.MIN_VALUE : Math.max(rootScore - widening, Integer.MIN_VALUE);
+			else
+			{
+				beta = widening > ASPIRATION_LIMIT? Integer.MAX_VALUE : Math.min(rootScore + widening, Integer.MAX_VALUE);
+				first = col;	// the column that failed high is the best so far
+			}
+		}
+	}
+
+	/**
+	 * Helper method. Find the best column for the AI on the current game board.
+	 * A winning column is returned right away, otherwise every legal column is
+	 * searched with minMaxBoard and the first column with the highest score wins.
+	 * @param board the current position, AI to move
+	 * @param depth how deep should the AI consider, including the AI's move
+	 * @param first the column to try first, e.g. the best column of a shallower search; -1 to use the transposition table
+	 * @return the best column to place; if the search was stopped, the best column searched so far
+	 */
+	private int bestColumn(Position board, int depth, int first)
+	{
+		return bestColumn(board, depth, first, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Helper method. Find the best column for the AI, like bestColumn(Position, int, int),
+	 * but only within the window: if the best score is at most alpha, rootScore is only an upper bound
+	 * and the column is meaningless; if it is at least beta, rootScore is only a lower bound.
+	 * The first column is searched with the window, every other column with principal variation search.
+	 * @param board the current position, AI to move
+	 * @param depth how deep should the AI consider, including the AI's move
+	 * @param first the column to try first; -1 to use the transposition table
+	 * @param alpha the score AI is already assured of
+	 * @param beta the score HUMAN is already assured of
+	 * @return the best column to place; if the search was stopped, the best column searched so far,
+	 * or the first column tried if none was
+	 */
+	private int bestColumn(Position board, int depth, int first, long alpha, long beta)
+	{
+		if (first == -1)
+		{
+			long entry = table.probe(board.key(AI));
+			if (entry == 0 && cache != null && depth >= CACHE_DEPTH)
+				entry = cache.probe(board.key(AI));
+			first = board.canonicalColumn(TranspositionTable.move(entry));
+		}
+		int[] legalMoves = moveLists[board.numberDisc()];
+		int numMoves = legalMove(board, AI, first, legalMoves);
+		Arrays.fill(rootBounds, SearchUpdate.NOT_SEARCHED);
+		// quick access to winning states
+		for (int i = 0; i < numMoves; ++i)
+			if (board.isWinningMove(legalMoves[i], AI))  // Winning happens in the AI's very next move
+			{
+				rootScore = Integer.MAX_VALUE - board.numberDisc() - 1;
+				rootScores[legalMoves[i]] = rootScore;
+				rootBounds[legalMoves[i]] = TranspositionTable.EXACT;
+				return legalMoves[i];		// the winning column
+			}
+		long bestScore = Integer.MIN_VALUE;
+		int resultColumn = -1;
+		for (int i = 0; i < numMoves; ++i)
+		{
+			int col = legalMoves[i];
+			long low = exactColumnScores? alpha : Math.max(alpha, bestScore);	// the column is searched with the window from low to beta
+			long childBoardScore = searchChild(board, col, depth, AI, low, beta, i == 0 || exactColumnScores);
+			if (stopped)
+				return resultColumn == -1? legalMoves[0] : resultColumn;
+			rootScores[col] = childBoardScore;
+			rootBounds[col] = childBoardScore <= low? TranspositionTable.UPPER
+					: childBoardScore >= beta? TranspositionTable.LOWER : TranspositionTable.EXACT;
+			if (resultColumn == -1 || childBoardScore > bestScore)
+			{
+				bestScore = childBoardScore;
+				resultColumn = col;
+			}
+			if (bestScore >= beta)	// the score is above the window, no need to look further
+				break;
+		}
+		int bound = TranspositionTable.EXACT;
+		if (bestScore <= alpha)
+			bound = TranspositionTable.UPPER;
+		else if (bestScore >= beta)
+			bound = TranspositionTable.LOWER;
+		table.store(board.key(AI), bestScore, depth, bound, board.canonicalColumn(resultColumn));
+		if (cache != null && depth >= CACHE_DEPTH)
+			cache.store(board.key(AI), bestScore, depth, bound, board.canonicalColumn(resultColumn));
+		rootScore = bestScore;
+		return resultColumn;
+	}
+
+	/**
+	 * Helper method.
+	 * Recursively find the min score or max score of the game board.
+	 * It returns the max score if the current player is AI,
+	 * or it returns the min score if the current player is HUMAN.
+	 * This method also uses alpha-beta pruning for boosting the minimax algorithm,
+	 * principal variation search so that the columns after the first are only tested with a null window,
+	 * and a transposition table so that a position reached through
+	 * different move orders is not searched again.
+	 * 
+	 * @param board the current position, the game must not be over
+	 * @param depth how deep should the AI consider, at least 1
+	 * @param player who needs to place a disc on the current board now
+	 * @param alpha the score AI is already assured of
+	 * @param beta the score HUMAN is already assured of
+	 * @return the best score according to the player, meaningless if the search was stopped
+	 */
+	private long minMaxBoard(Position board, int depth, char player, long alpha, long beta)
+	{
+		if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline)
+			stopped = true;
+		if (stopped)
+			return 0;
+		long key = board.key(player);
+		long entry = table.probe(key);
+		if (isCutoff(entry, depth, alpha, beta))
+			return TranspositionTable.score(entry);
+		if (cache != null && depth >= CACHE_DEPTH)
+		{
+			long cached = cache.probe(key);
+			if (isCutoff(cached, depth, alpha, beta))
+			{
+				table.store(key, TranspositionTable.score(cached), TranspositionTable.depth(cached),
+						TranspositionTable.bound(cached), TranspositionTable.move(cached));
+				return TranspositionTable.score(cached);
+			}
+			if (TranspositionTable.depth(cached) > TranspositionTable.depth(entry))
+				entry = cached;		// its move is the better guess
+		}
+		if (ROW * COLUMN - board.numberDisc() <= tablebaseEmpties)
+		{
+			int exact = tablebase.probe(board, player);
+			if (exact != Tablebase.UNKNOWN)
+				return exactScore(player == AI? exact : -exact);
+		}
+		if (depth == 1)
+			return frontierScore(board, player, alpha, beta, key, board.canonicalColumn(TranspositionTable.move(entry)));
+		int[] legalMoves = moveLists[board.numberDisc()];
+		int numMoves = legalMove(board, player, board.canonicalColumn(TranspositionTable.move(entry)), legalMoves);
+		int numDisc = board.numberDisc() + 1;
+		for (int i = 0; i < numMoves; ++i)
+			if (board.isWinningMove(legalMoves[i], player))  // Winning happens in the current player's very next move
+				return player == AI? Integer.MAX_VALUE - numDisc : Integer.MIN_VALUE + numDisc;
+		long bestScore = player == AI? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		int bestMove = -1;
+		long alphaOrigin = alpha;
+		long betaOrigin = beta;
+		for (int i = 0; i < numMoves; ++i)	// each legal column
+		{
+			int col = legalMoves[i];
+			long childBoardScore = searchChild(board, col, depth, player, alpha, beta, i == 0);
+			if (player == AI)
+			{
+				if (bestMove == -1 || childBoardScore > bestScore) // if the new score is better than the old best score
+				{
+					bestScore = childBoardScore;
+					bestMove = col;
+				}
+				alpha = Math.max(alpha, bestScore);
+			}
+			else
+			{
+				if (bestMove == -1 || childBoardScore < bestScore) // if the new score is better than the old best score
+				{
+					bestScore = childBoardScore;
+					bestMove = col;
+				}
+				beta = Math.min(beta, bestScore);
+			}
+			if (alpha >= beta)	// for alpha-beta pruning
+			{
+				cutoffs[board.numberDisc() - rootDisc]++;
+				if (i == 0)
+					firstMoveCutoffs++;
+				recordCutoff(board, col, depth, player);
+				break;		// do not need to compute siblings.
+			}
+		}
+		if (stopped)	// the score is not reliable, do not store it
+			return bestScore;
+		int bound = TranspositionTable.EXACT;
+		if (bestScore <= alphaOrigin)
+			bound = TranspositionTable.UPPER;
+		else if (bestScore >= betaOrigin)
+			bound = TranspositionTable.LOWER;
+		table.store(key, bestScore, depth, bound, board.canonicalColumn(bestMove));
+		if (cache != null && depth >= CACHE_DEPTH)
+			cache.store(key, bestScore, depth, bound, board.canonicalColumn(bestMove));
+		return bestScore;
+	}
+
+	/**
+	 * Helper method. Get the score of a position one move above the horizon.
+	 * Every child is a leaf, so its score is read from the evaluator without dropping the disc,
+	 * and the columns are tried without ordering: the stored best column, then middle first.
+	 * @param board the current position, the game must not be over
+	 * @param player who needs to place a disc on the current board now
+	 * @param alpha the score AI is already assured of
+	 * @param beta the score HUMAN is already assured of
+	 * @param key the key of the position for the player
+	 * @param first the column to try first, usually the best move stored in the transposition table; -1 if there is none
+	 * @return the best score according to the player
+	 */
+	private long frontierScore(Position board, char player, long alpha, long beta, long key, int first)
+	{
+		int numDisc = board.numberDisc() + 1;
+		if (board.winningColumns(player) != 0)	// Winning happens in the current player's very next move
+			return player == AI? Integer.MAX_VALUE - numDisc : Integer.MIN_VALUE + numDisc;
+		boolean full = numDisc == ROW * COLUMN;		// the only child fills the board, a draw
+		long bestScore = player == AI? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		int bestMove = -1;
+		long alphaOrigin = alpha;
+		long betaOrigin = beta;
+		for (int j = -1; j < COLUMN; ++j)
+		{
+			int col = j == -1? first : ORDER[j];
+			if (col == -1 || (j != -1 && col == first) || !board.canPlay(col))
+				continue;
+			leaves++;
+			long score = full? 0 : evaluator.childScore(board, col, player);
+			if (bestMove == -1 || (player == AI? score > bestScore : score < bestScore))
+			{
+				bestScore = score;
+				bestMove = col;
+			}
+			if (player == AI)
+				alpha = Math.max(alpha, bestScore);
+			else
+				beta = Math.min(beta, bestScore);
+			if (alpha >= beta)	// for alpha-beta pruning
+			{
+				cutoffs[board.numberDisc() - rootDisc]++;
+				if (j == -1)
+					firstMoveCutoffs++;
+				recordCutoff(board, col, 1, player);
+				break;
+			}
+		}
+		int bound = TranspositionTable.EXACT;
+		if (bestScore <= alphaOrigin)
+			bound = TranspositionTable.UPPER;
+		else if (bestScore >= betaOrigin)
+			bound = TranspositionTable.LOWER;
+		table.store(key, bestScore, 1, bound, board.canonicalColumn(bestMove));
+		return bestScore;
+	}
+
+	/**
+	 * Helper method. Determine whether a stored entry settles the score of a position.
+	 * @param entry the packed entry of the position, 0 if there is none
+	 * @param depth how deep the position is to be searched
+	 * @param alpha the score AI is already assured of
+	 * @param beta the score HUMAN is already assured of
+	 * @return true if the score of the entry can be returned without searching, otherwise false
+	 */
+	private static boolean isCutoff(long entry, int depth, long alpha, long beta)
+	{
+		if (entry == 0 || TranspositionTable.depth(entry) < depth)
+			return false;
+		long score = TranspositionTable.score(entry);
+		int bound = TranspositionTable.bound(entry);
+		return bound == TranspositionTable.EXACT
+				|| (bound == TranspositionTable.LOWER && score >= beta)
+				|| (bound == TranspositionTable.UPPER && score <= alpha);
+	}
+
+	/**
+	 * Helper method. Get the score of the sub-board with principal variation search.
+	 * The first column, expected to be the best, is searched with the whole window.
+	 * Any other column is only tested with a null window to show that it is no better,
+	 * and searched again with the whole window if it turns out to be better.
+	 * @param board the current position
+	 * @param col a legal column to place a disc, not a winning column for the player
+	 * @param depth how deep should the AI consider, including the player's move
+	 * @param player who needs to place a disc on the current board now
+	 * @param alpha the score AI is already assured of
+	 * @param beta the score HUMAN is already assured of
+	 * @param first true if the column is the first one tried
+	 * @return the score of the sub-board, as childScore would return it
+	 */
+	private long searchChild(Position board, int col, int depth, char player, long alpha, long beta, boolean first)
+	{
+		if (first || depth == 1 || beta - alpha <= 1)	// the window cannot be narrowed, or a leaf ignores it
+			return childScore(board, col, depth, player, alpha, beta);
+		if (player == AI)
+		{
+			long score = childScore(board, col, depth, player, alpha, alpha + 1);
+			if (score > alpha && score < beta && !stopped)
+				score = childScore(board, col, depth, player, alpha, beta);
+			return score;
+		}
+		long score = childScore(board, col, depth, player, beta - 1, beta);
+		if (score < beta && score > alpha && !stopped)
+			score = childScore(board, col, depth, player, alpha, beta);
+		return score;
+	}
+
+	/**
+	 * Helper method. Get the score of the sub-board after the player drops a disc into the column.
+	 * The column must not be a winning column for the player.
+	 * The disc is dropped into the position itself and taken back afterwards.
+	 * @param board the current position
+	 * @param col a legal column to place a disc
+	 * @param depth how deep should the AI consider, including the player's move
+	 * @param player who needs to place a disc on the current board now
+	 * @param alpha the score AI is already assured of
+	 * @param beta the score HUMAN is already assured of
+	 * @return the score of the sub-board
+	 */
+	private long childScore(Position board, int col, int depth, char player, long alpha, long beta)
+	{
+		int row = ROW - 1 - board.columnHeight(col);
+		board.play(col, player); // the sub board
+		evaluator.place(row, col, player);
+		long childBoardScore;
+		if (board.isFull())  // The game ends with a draw
+			childBoardScore = 0;
+		else if (depth == 1)		// The game is not over, simply reached the specified depth
+		{
+			leaves++;
+			childBoardScore = evaluator.score();
+		}
+		else
+			childBoardScore = minMaxBoard(board, depth - 1, player == AI? HUMAN : AI, alpha, beta);
+		evaluator.remove(row, col, player);
+		board.undo();
+		return childBoardScore;
+	}
+
+	/**
+	 * Helper method. Remember that dropping a disc on the cell of the column caused a beta cutoff,
+	 * so that the column is tried earlier wherever that cell is the next free one.
+	 * The cell is remembered as in the canonical position, so mirrored positions share their history.
+	 * @param board the current position
+	 * @param col the column that caused the cutoff
+	 * @param depth how deep the position was searched
+	 * @param player who placed the disc
+	 */
+	private void recordCutoff(Position board, int col, int depth, char player)
+	{
+		int[] playerHistory = history[player == AI? 0 : 1];
+		int cell = board.canonicalColumn(col) * ROW + board.columnHeight(col);
+		playerHistory[cell] += depth * depth;
+		if (playerHistory[cell] > HISTORY_LIMIT)
+			for (int[] scores: history)
+				for (int i = 0; i < scores.length; ++i)
+					scores[i] /= 2;
+	}
+
+	/**
+	 * Helper method. Get all legal columns to choose on the current game board, the most promising first:
+	 * the given column, then a column stopping the opponent from winning, then the others by the number
+	 * of threats they make, their place in the middle-first order and their history score.
+	 * A winning column needs no ordering, the search returns as soon as it finds one.
+	 * The columns are ordered as in the canonical position, so that mirrored positions are searched alike,
+	 * and in a symmetric position only one of each pair of mirrored columns is returned.
+	 * @param board the game board
+	 * @param player who needs to place a disc on the current board now
+	 * @param first the column to try first, usually the best move stored in the transposition table; -1 if there is none
+	 * @param result the buffer receiving the legal columns, at least COLUMN long
+	 * @return the number of legal columns
+	 */
+	private int legalMove(Position board, char player, int first, int[] result)
+	{
+		char opponent = player == AI? HUMAN : AI;
+		int[] playerHistory = history[player == AI? 0 : 1];
+		int numMoves = 0;
+		for (int j = 0; j < COLUMN; ++j)
+		{
+			int col = board.canonicalColumn(ORDER[j]);
+			if (!board.canPlay(col) || (board.isSymmetric() && col > (COLUMN - 1) / 2))
+				continue;
+			int score;
+			if (col == first)
+				score = Integer.MAX_VALUE;
+			else if (board.isWinningMove(col, opponent))
+				score = Integer.MAX_VALUE - 1;
+			else
+				score = board.countThreats(col, player) * THREAT_WEIGHT + (COLUMN - 1 - j) * CENTRE_WEIGHT
+						+ playerHistory[ORDER[j] * ROW + board.columnHeight(col)];
+			int i = numMoves++;
+			for (; i > 0 && moveScores[i - 1] < score; --i)	// insertion sort, at most COLUMN columns
+			{
+				moveScores[i] = moveScores[i - 1];
+				result[i] = result[i - 1];
+			}
+			moveScores[i] = score;
+			result[i] = col;
+		}
+		return numMoves;
+	}
+}
@@ -0,0 +1,338 @@
+package project8;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.*;
+
+/**
+ * This is a Connect 4 server hosting many games at once over TCP.
+ * Every connection plays its own games against the AI with a line protocol,
+ * every command getting exactly one line back:
+ * <ul>
+ * <li>NEW 1 or NEW 2 starts a new game with the human playing first or second;
+ * the answer is OK, or AI and the column chosen by the AI if it plays first</li>
+ * <li>MOVE and a column, 1-7 on the usual board, drops the human's disc; the answer is AI and the column chosen by the AI,
+ * followed by OVER and the result if the game is over</li>
+ * <li>BOARD shows the board, row by row from the top, separated by '/', with '.' for an empty cell</li>
+ * <li>QUIT closes the connection</li>
+ * </ul>
+ * A command that cannot be carried out is answered with ERROR and the reason,
+ * and BUSY if the server has no capacity left, in which case nothing changed.
+ * <p>
+ * Connections are served by one thread each, a virtual thread when running on Java 21 or later,
+ * so that thousands of mostly idle connections cost little. The AI moves are computed on a separate
+ * fixed pool with one thread per processor. A connection waits for a place on that pool before its
+ * command is carried out, so a burst of moves queues up as waiting connections instead of as
+ * searches competing for the processors, and the time of a move stays close to the AI's budget.
+ * With the connect4.cache property the AIs use that position cache file, which several servers
+ * on the host may share.
+ * Usage: GameServer [port] [moveMillis] [threads] [maxSessions]
+ * @author YiWang
+ */
+public class GameServer implements Closeable {
+	private static final int QUEUED_MOVES_PER_THREAD = 2;		// how many moves per AI thread may wait for it
+	private static final int AI_FIRST = -1;						// the column passed to aiMove when the AI plays next
+	private static final String AI_FAILED = "ERROR the AI failed, the game is over";	// the answer when the AI could not move
+	private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(10);	// a connection idle for so long is closed
+
+	private final ServerSocket serverSocket;		// accepts the connections
+	private final ExecutorService connections;		// runs one thread per connection
+	private final ExecutorService aiPool;			// computes the AI moves
+	private final ThreadLocal<GameAI> ais;			// the AI of each thread of the pool
+	private final Semaphore moves;					// places for moves on the pool, running or waiting
+	private final Semaphore sessions;				// places for connections
+	private final Duration moveTime;				// how long the AI may think for one move
+
+	/**
+	 * Constructor starting to listen on the port
+	 * @param port the TCP port, 0 for any free port
+	 * @param moveTime how long the AI may think for one move
+	 * @param threads number of threads computing AI moves, e.g. Runtime.getRuntime().availableProcessors()
+	 * @param maxSessions the most connections served at once
+	 * @param book the opening book used by the AI, null if there is none
+	 * @throws IOException if the port cannot be listened on
+	 */
+	public GameServer(int port, Duration moveTime, int threads, int maxSessions, OpeningBook book) throws IOException
+	{
+		this(port, moveTime, threads, maxSessions, book, null);
+	}
+
+	/**
+	 * Constructor starting to listen on the port, with a position cache shared by the AIs
+	 * @param port the TCP port, 0 for any free port
+	 * @param moveTime how long the AI may think for one move
+	 * @param threads number of threads computing AI moves, e.g. Runtime.getRuntime().availableProcessors()
+	 * @param maxSessions the most connections served at once
+	 * @param book the opening book used by the AI, null if there is none
+	 * @param cache the position cache used by the AI, e.g. shared with other servers on the host; null if there is none
+	 * @throws IOException if the port cannot be listened on
+	 */
+	public GameServer(int port, Duration moveTime, int threads, int maxSessions, OpeningBook book, PositionCache cache) throws IOException
+	{
+		if (threads < 1)
+			throw new IllegalArgumentException("Invalid number of threads");
+		if (maxSessions < 1)
+			throw new IllegalArgumentException("Invalid number of sessions");
+		this.moveTime = moveTime;
+		serverSocket = new ServerSocket(port);
+		connections = connectionExecutor();
+		aiPool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "GameServer AI");
+			thread.setDaemon(true);
+			return thread;
+		});
+		ais = ThreadLocal.withInitial(() -> {
+			GameAI ai = new GameAI();
+			ai.setOpeningBook(book);
+			ai.setPositionCache(cache);
+			return ai;
+		});
+		moves = new Semaphore(threads * (1 + QUEUED_MOVES_PER_THREAD));
+		sessions = new Semaphore(maxSessions);
+	}
+
+	/**
+	 * The main method runs the server until it is killed
+	 * @param args optionally the port (default 4444), the time the AI may think for one move in milliseconds
+	 * (default 500), the number of threads computing AI moves (default the number of available processors)
+	 * and the most connections served at once (default 10000)
+	 * @throws IOException if the port cannot be listened on
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int port = args.length > 0? Integer.parseInt(args[0]) : 4444;
+		Duration moveTime = Duration.ofMillis(args.length > 1? Long.parseLong(args[1]) : 500);
+		int threads = args.length > 2? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int maxSessions = args.length > 3? Integer.parseInt(args[3]) : 10000;
+		try (GameServer server = new GameServer(port, moveTime, threads, maxSessions, MainProgram.openBook(), MainProgram.openPositionCache()))
+		{
+			System.out.println("Connect 4 server listening on port " + server.getPort());
+			server.serve();
+		}
+	}
+
+	/**
+	 * Get the port the server listens on
+	 * @return the TCP port
+	 */
+	public int getPort()
+	{
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Accept connections and serve each of them on its own thread, until the server is closed
+	 * @throws IOException if accepting a connection fails while the server is open
+	 */
+	public void serve() throws IOException
+	{
+		while (!serverSocket.isClosed())
+		{
+			Socket socket;
+			try
+			{
+				socket = serverSocket.accept();
+			}
+			catch (IOException e)
+			{
+				if (serverSocket.isClosed())
+					return;
+				throw e;
+			}
+			if (!sessions.tryAcquire())
+			{
+				try (Socket rejected = socket)
+				{
+					rejected.getOutputStream().write("BUSY too many games\n".getBytes(StandardCharsets.US_ASCII));
+				}
+				catch (IOException e)
+				{
+					// the client is turned away anyway
+				}
+				continue;
+			}
+			connections.execute(() -> {
+				try
+				{
+					session(socket);
+				}
+				finally
+				{
+					sessions.release();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stop accepting connections, close the open ones and stop the AI threads
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		serverSocket.close();
+		connections.shutdownNow();
+		aiPool.shutdownNow();
+	}
+
+	/**
+	 * Helper method. Play games with one client until it quits or disconnects.
+	 * @param socket the connection to the client
+	 */
+	private void session(Socket socket)
+	{
+		try (Socket client = socket;
+				BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+				PrintWriter out = new PrintWriter(client.getOutputStream(), true, StandardCharsets.US_ASCII))
+		{
+			client.setSoTimeout((int) IDLE_TIMEOUT.toMillis());
+			out.println("WELCOME Connect 4, commands: NEW 1|2, MOVE 1-" + Game.getColumn() + ", BOARD, QUIT");
+			Game game = null;
+			String line;
+			while ((line = in.readLine()) != null)
+			{
+				String[] words = line.trim().toUpperCase().split("\\s+");
+				if (words[0].equals("QUIT"))
+					break;
+				else if (words[0].equals("NEW") && words.length == 2 && (words[1].equals("1") || words[1].equals("2")))
+				{
+					Game newGame = new Game();
+					newGame.setFirstPlayer(words[1].equals("1"));
+					String answer = words[1].equals("1")? "OK" : aiMove(newGame, AI_FIRST);
+					if (!answer.startsWith("BUSY") && !answer.startsWith(AI_FAILED))
+						game = newGame;
+					out.println(answer);
+				}
+				else if (words[0].equals("MOVE") && words.length == 2)
+				{
+					if (game == null)
+						out.println("ERROR no game, start one with NEW");
+					else
+					{
+						char digit = words[1].length() == 1? words[1].charAt(0) : '0';
+						int col = digit >= '1'? digit - '1' : Game.getColumn();		// an invalid column is rejected by the game
+						String answer = aiMove(game, col);
+						if (answer.startsWith("OVER") || answer.contains(" OVER ") || answer.startsWith(AI_FAILED))
+							game = null;
+						out.println(answer);
+					}
+				}
+				else if (words[0].equals("BOARD"))
+					out.println(game == null? "ERROR no game, start one with NEW" : "BOARD " + boardLine(game));
+				else
+					out.println("ERROR unknown command");
+			}
+		}
+		catch (SocketTimeoutException e)
+		{
+			// the client was idle for too long
+		}
+		catch (IOException e)
+		{
+			// the client disconnected
+		}
+		catch (InterruptedException e)
+		{
+			// the server is closing
+		}
+	}
+
+	/**
+	 * Helper method. Drop the human's disc, then let the AI answer on the AI pool.
+	 * The calling thread waits for a place on the pool first, for at most one move time,
+	 * so that nothing changes if the server is too busy. If the AI fails after the human's disc
+	 * was dropped, the AI would have to move next, so the game cannot go on and is ended.
+	 * @param game the game, the AI plays next unless the human's column is given
+	 * @param col the column of the human's disc, from 0, or AI_FIRST if the AI plays next
+	 * @return the answer to the client
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	private String aiMove(Game game, int col) throws InterruptedException
+	{
+		if (!moves.tryAcquire(moveTime.toMillis(), TimeUnit.MILLISECONDS))
+			return "BUSY try again later";
+		try
+		{
+			if (col != AI_FIRST)
+				game.placeDisc(col);
+			Future<Integer> result = aiPool.submit(() -> ais.get().chooseColumn(game, moveTime));
+			int aiCol;
+			try
+			{
+				aiCol = result.get();
+			}
+			catch (InterruptedException e)
+			{
+				result.cancel(true);	// the connection is closed, so is its game
+				throw e;
+			}
+			try
+			{
+				game.placeDisc(aiCol);
+			}
+			catch (GameOverException e)
+			{
+				return "AI " + (aiCol + 1) + " OVER " + e.getMessage();
+			}
+			return "AI " + (aiCol + 1);
+		}
+		catch (GameOverException e)
+		{
+			return "OVER " + e.getMessage();
+		}
+		catch (InvalidColumnException e)
+		{
+			return "ERROR " + e.getMessage();
+		}
+		catch (ExecutionException | RejectedExecutionException e)
+		{
+			return AI_FAILED + ", start one with NEW: " + e;
+		}
+		finally
+		{
+			moves.release();
+		}
+	}
+
+	/**
+	 * Helper method. Write the board on one line.
+	 * @param game the game
+	 * @return the rows from the top, separated by '/', with '.' for an empty cell
+	 */
+	private static String boardLine(Game game)
+	{
+		StringBuilder result = new StringBuilder();
+		for (char[] row: game.getBoard())
+		{
+			if (result.length() > 0)
+				result.append('/');
+			for (char cell: row)
+				result.append(cell == Game.getEmpty()? '.' : cell);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Helper method. Create the executor running one thread per connection: a virtual thread
+	 * per connection on Java 21 or later, otherwise a platform thread per connection.
+	 * @return the executor for the connections
+	 */
+	private static ExecutorService connectionExecutor()
+	{
+		try
+		{
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return Executors.newCachedThreadPool();		// no virtual threads before Java 21
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package project8;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * This is the complete Connect 4 game with human playing with an AI.
+ * Human player can choose to play first or second.
+ * @author YiWang
+ */
+public class MainProgram {
+	private static final Duration AI_TIME = Duration.ofSeconds(2);	// how long the AI may think for one move
+	private static final String BOOK_FILE = "opening.book";			// the opening book used when the connect4.book property is not set
+	private static final String TABLEBASE_FILE = "endgame.tablebase";	// the tablebase used when the connect4.tablebase property is not set
+	private static final int CACHE_MEGABYTES = 256;		// the size of a new position cache when the connect4.cacheMegabytes property is not set
+
+	/**
+	 * The main method runs Connect 4 game and the AI.
+	 * @param args standard java main function argument
+	 */
+	public static void main(String[] args)
+	{
+		System.out.println("Welcome to Connect 4");
+		System.out.println("Using Minimax with Alpha Beta Pruning\n");
+		Scanner in = new Scanner(System.in);
+		GameAI ai = new GameAI();
+		ai.setOpeningBook(openBook());
+		ai.setTablebase(openTablebase());
+		ai.setPositionCache(openPositionCache());
+		Game game = new Game();
+		EngineSession session = new EngineSession(game, ai);
+		session.setPondering(true);		// think about the human's reply while the human does
+		game.display();
+		System.out.println();
+		while (true)
+		{
+			System.out.print("Would you like to play first(enter \"1\") or second(enter \"2\"): ");
+			if (!in.hasNext())		// the input has ended
+			{
+				session.close();
+				System.out.println("\nThank you. Goodbye!");
+				return;
+			}
+			if (in.hasNextInt())
+			{
+				int humanPlayer = in.nextInt();
+				if (humanPlayer == 1)
+					break;
+				
+				else if (humanPlayer == 2)
+				{
+					game.setFirstPlayer(false);;
+					break;
+				}
+			}
+			else
+				in.next();		// throw the input away, so that the next one is read
+			System.out.println("Invalid input. Please try again.");
+		}
+
+		while(true)
+		{
+			try
+			{
+				if(game.getTurn() == game.getHuman())
+				{
+					System.out.println("Human player's turn. Human is '" + game.getHuman() + "'");
+					System.out.print("Enter column number 1-" + Game.getColumn() + ": ");
+					if (!in.hasNext())		// the input has ended
+					{
+						System.out.println();
+						break;
+					}
+					Integer col = null;
+					if (in.hasNextInt())
+						col = in.nextInt() -1;
+					else
+					{
+						in.next();		// throw the input away, so that the next one is read
+						throw new InvalidColumnException("Invalid input. Please try again.");
+					}
+					session.play(col);
+				}
+				else
+				{
+					System.out.println("AI's turn. AI is '" + game.getAI() + "'");
+					System.out.println("Calculating...");
+					System.out.println("This takes at most " + AI_TIME.getSeconds() + " seconds.");
+					int chosenColumn = session.think(AI_TIME);
+					System.out.println("Done");
+					System.out.println("AI chooses COLUMN " + (chosenColumn + 1));
+					session.play(chosenColumn);
+				}
+				System.out.println();
+				game.display();
+				System.out.println("\n");
+			}
+			catch(InvalidColumnException e)
+			{
+				System.out.println(e.getMessage());
+				System.out.println();
+			}
+			catch(GameOverException e)
+			{
+				System.out.println();
+				game.display();
+				System.out.println();
+				System.out.println(e.getMessage());
+				break;
+			}
+		}
+		session.close();
+		System.out.println("Thank you. Goodbye!");
+	}
+
+	/**
+	 * Helper method. Open the opening book if there is one.
+	 * @return the opening book, null if there is none
+	 */
+	static OpeningBook openBook()
+	{
+		Path file = Paths.get(System.getProperty("connect4.book", BOOK_FILE));
+		if (!Files.exists(file))
+			return null;
+		try
+		{
+			OpeningBook book = OpeningBook.open(file);
+			System.out.println("Using the opening book " + file + " with " + book.size() + " positions\n");
+			return book;
+		}
+		catch (IOException e)
+		{
+			System.out.println("Cannot read the opening book: " + e.getMessage() + "\n");
+			return null;
+		}
+	}
+
+	/**
+	 * Helper method. Open the endgame tablebase if there is one.
+	 * @return the tablebase, null if there is none
+	 */
+	static Tablebase openTablebase()
+	{
+		Path file = Paths.get(System.getProperty("connect4.tablebase", TABLEBASE_FILE));
+		if (!Files.exists(file))
+			return null;
+		try
+		{
+			Tablebase tablebase = Tablebase.open(file);
+			System.out.println("Using the tablebase " + file + " with " + tablebase.size() + " positions\n");
+			return tablebase;
+		}
+		catch (IOException e)
+		{
+			System.out.println("Cannot read the tablebase: " + e.getMessage() + "\n");
+			return null;
+		}
+	}
+
+	/**
+	 * Helper method. Open the position cache given with the connect4.cache property, making it if it does not exist.
+	 * @return the position cache, null if the property is not set or the cache cannot be opened
+	 */
+	static PositionCache openPositionCache()
+	{
+		String name = System.getProperty("connect4.cache");
+		if (name == null)
+			return null;
+		try
+		{
+			PositionCache cache = PositionCache.open(Paths.get(name), Integer.getInteger("connect4.cacheMegabytes", CACHE_MEGABYTES));
+			System.out.println("Using the position cache " + name + " of " + cache.getMegabytes() + " MB\n");
+			return cache;
+		}
+		catch (IOException | IllegalArgumentException e)
+		{
+			System.out.println("Cannot open the position cache: " + e.getMessage() + "\n");
+			return null;
+		}
+	}
+}
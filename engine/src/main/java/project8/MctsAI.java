@@ -0,0 +1,448 @@
+package project8;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is an AI choosing its columns with Monte Carlo tree search instead of minimax,
+ * so that its strength does not depend on a hand-tuned evaluation, only on how many games it plays out.
+ * Every playout walks down the tree, choosing the child with the best upper confidence bound (UCT),
+ * adds the children of the node it ends at once that node has been played out a few times,
+ * and plays the game to its end with a light policy: a player wins at once if it can,
+ * blocks the opponent's winning column if there is one, and plays a random column otherwise.
+ * The result is added to every node on the way. The column played out most often is chosen.
+ * <p>
+ * The playouts run on the bitboard Position, one copy per thread, and all threads share one tree.
+ * A node keeps its number of playouts and its points in one long, updated with one atomic add,
+ * so that no node is ever locked. A thread walking down counts every node on its way as a lost playout
+ * until its own result is known (a virtual loss), so that the other threads choose other paths meanwhile.
+ * A node where the player to move can win, or has to block, only gets the child of that column.
+ * @author YiWang
+ */
+public class MctsAI implements Engine {
+	private static final char AI = Game.getAI();			// AI's disc
+	private static final char HUMAN = Game.getHuman();		// Human's disc
+	private static final int ROW = Game.getRow();			// number of rows of the board
+	private static final int COLUMN = Game.getColumn();		// number of columns of the board
+	private static final int[] ORDER = Position.middleFirst();	// the order to try the columns, middle first
+	private static final int PLAYOUTS = 100000;			// how many playouts chooseColumn(Game) plays by default
+	private static final double EXPLORATION = 0.5;		// weight of the exploration term of UCT
+	private static final int VIRTUAL_LOSS = 1;			// how many lost playouts a thread on its way down counts as
+	private static final int EXPAND_VISITS = 2;			// a leaf gets its children once it has been played out so often
+	private static final int CHECK_INTERVAL = 64;		// how many playouts are played between two deadline checks
+	private static final long SEED = 0x4D435453L;		// seed of the random playouts, so that one thread plays alike every time
+	private static final int WIN = 2;					// points of a won playout; a draw is worth 1, a loss 0
+
+	private final int threads;							// number of threads playing out, including the calling thread
+	private ExecutorService workerPool;					// runs the other threads, created on first use
+	private int playouts = PLAYOUTS;					// how many playouts chooseColumn(Game) plays
+	private volatile boolean stopped;					// true if the current search has to stop
+	private final AtomicLong played = new AtomicLong();	// number of playouts of the current search
+
+	/**
+	 * Default constructor, playing out on the calling thread only
+	 */
+	public MctsAI()
+	{
+		this(1);
+	}
+
+	/**
+	 * Constructor with the number of threads to use.
+	 * With one thread the search is deterministic for a fixed number of playouts.
+	 * @param threads number of threads playing out, e.g. Runtime.getRuntime().availableProcessors()
+	 */
+	public MctsAI(int threads)
+	{
+		if (threads < 1)
+			throw new IllegalArgumentException("Invalid number of threads");
+		this.threads = threads;
+	}
+
+	/**
+	 * Set how many playouts chooseColumn(Game) and analyze(Game) play
+	 * @param playouts the number of playouts, at least 1; 100000 by default
+	 */
+	public void setPlayouts(int playouts)
+	{
+		if (playouts < 1)
+			throw new IllegalArgumentException("Invalid number of playouts");
+		this.playouts = playouts;
+	}
+
+	@Override
+	public int chooseColumn(Game game)
+	{
+		return analyze(game).getColumn();
+	}
+
+	@Override
+	public int chooseColumn(Game game, Duration budget)
+	{
+		return analyze(game, budget).getColumn();
+	}
+
+	/**
+	 * AI chooses a column after the set number of playouts, and reports what the search did.
+	 * The score of the column is its average result from -1000 (always lost) to 1000 (always won),
+	 * the depth is the deepest node of the tree and the nodes are the playouts.
+	 * @param game connect four Game object
+	 * @return the chosen column and the statistics of the search
+	 */
+	@Override
+	public SearchStats analyze(Game game)
+	{
+		return search(game.getPosition(), playouts, Long.MAX_VALUE);
+	}
+
+	/**
+	 * AI chooses a column after playing out until the time budget is used, like analyze(Game)
+	 * @param game connect four Game object
+	 * @param budget how long the AI may think
+	 * @return the chosen column and the statistics of the search
+	 */
+	@Override
+	public SearchStats analyze(Game game, Duration budget)
+	{
+		return search(game.getPosition(), Long.MAX_VALUE, System.nanoTime() + budget.toNanos());
+	}
+
+	@Override
+	public void stop()
+	{
+		stopped = true;
+	}
+
+	@Override
+	public void shutdown()
+	{
+		if (workerPool != null)
+			workerPool.shutdownNow();
+		workerPool = null;
+	}
+
+	/**
+	 * Helper method. Build the tree of the position on every thread, and choose the column played out most often.
+	 * @param board the position, AI to move
+	 * @param limit the most playouts
+	 * @param deadline System.nanoTime() when the search must stop
+	 * @return the chosen column and the statistics of the search
+	 */
+	private SearchStats search(Position board, long limit, long deadline)
+	{
+		long start = System.nanoTime();
+		stopped = false;
+		played.set(0);
+		Node root = new Node(-1, Node.OPEN);
+		root.expand(board, AI);
+		int maxDepth = 0;
+		if (root.children.length > 1)		// a single column, e.g. a win or a block, needs no playouts
+		{
+			if (threads > 1 && workerPool == null)
+				workerPool = Executors.newFixedThreadPool(threads - 1, runnable -> {
+					Thread thread = new Thread(runnable, "MctsAI worker");
+					thread.setDaemon(true);
+					return thread;
+				});
+			List<Future<Integer>> workers = new ArrayList<Future<Integer>>();
+			for (int i = 1; i < threads; ++i)
+			{
+				int worker = i;
+				workers.add(workerPool.submit(() -> playOut(root, new Position(board), limit, deadline, worker)));
+			}
+			maxDepth = playOut(root, new Position(board), limit, deadline, 0);
+			stopped = true;
+			for (Future<Integer> future: workers)
+			{
+				try
+				{
+					maxDepth = Math.max(maxDepth, future.get());
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				catch (ExecutionException e)
+				{
+					throw new IllegalStateException("Playout failed", e.getCause());
+				}
+			}
+		}
+		Node best = root.mostPlayed();
+		long stats = best.stats;
+		long score;				// the average points of the column, from -1000 to 1000
+		if (best.outcome != Node.OPEN)
+			score = (best.outcome - 1) * 1000;
+		else
+			score = Node.visits(stats) == 0? 0 : Math.round(((double) Node.points(stats) / Node.visits(stats) - 1) * 1000);
+		return new SearchStats(best.column, score, maxDepth, played.get(), played.get(), new long[ROW * COLUMN], 0,
+				Duration.ofNanos(System.nanoTime() - start), principalVariation(root));
+	}
+
+	/**
+	 * Helper method. Play out from the root until the limit, the deadline or stop().
+	 * @param root the root of the shared tree
+	 * @param board a copy of the position of the root, AI to move, owned by this thread
+	 * @param limit the most playouts of all threads together
+	 * @param deadline System.nanoTime() when the search must stop
+	 * @param worker the index of the thread, for its own random numbers
+	 * @return the depth of the deepest node reached
+	 */
+	private int playOut(Node root, Position board, long limit, long deadline, int worker)
+	{
+		SplittableRandom random = new SplittableRandom(SEED + worker);
+		Node[] path = new Node[ROW * COLUMN + 1];
+		int[] legal = new int[COLUMN];		// the legal columns during a playout
+		int maxDepth = 0;
+		for (long count = 1; !stopped && played.get() < limit; ++count)
+		{
+			if (count % CHECK_INTERVAL == 0 && System.nanoTime() > deadline)
+				break;
+			// walk down, every node on the way counting as lost until the result is known
+			Node node = root;
+			char player = AI;		// the player to move at node
+			int depth = 0;
+			path[0] = root;
+			int result;				// the points of the player who moved into the last node
+			while (true)
+			{
+				long before = node.addVisit(VIRTUAL_LOSS, 0);
+				if (node.outcome != Node.OPEN)
+				{
+					result = node.outcome;
+					break;
+				}
+				if (node.children == null)
+				{
+					if (Node.visits(before) < EXPAND_VISITS)
+					{
+						char winner = playout(board, player, random, legal);
+						result = winner == 0? 1 : winner == player? 0 : WIN;
+						break;
+					}
+					node.expand(board, player);
+				}
+				node = node.select();
+				board.play(node.column, player);
+				player = player == AI? HUMAN : AI;
+				path[++depth] = node;
+			}
+			maxDepth = Math.max(maxDepth, depth);
+			// take the virtual losses back and add the result, seen from the player who moved into each node
+			for (int i = depth; i >= 0; --i)
+			{
+				path[i].addVisit(1 - VIRTUAL_LOSS, result);
+				result = WIN - result;
+				if (i > 0)
+					board.undo();
+			}
+			played.incrementAndGet();
+		}
+		return maxDepth;
+	}
+
+	/**
+	 * Helper method. Play the game to its end with the light policy, then take the moves back.
+	 * @param board the position, the game must not be over
+	 * @param player the player to move
+	 * @param random the random numbers of this thread
+	 * @param legal room for the legal columns
+	 * @return the winner, AI or HUMAN, 0 for a draw
+	 */
+	private static char playout(Position board, char player, SplittableRandom random, int[] legal)
+	{
+		int moves = 0;
+		char winner = 0;
+		while (!board.isFull())
+		{
+			char opponent = player == AI? HUMAN : AI;
+			if (board.winningColumns(player) != 0)
+			{
+				winner = player;
+				break;
+			}
+			int col;
+			int blocks = board.winningColumns(opponent);
+			if (blocks != 0)
+				col = Integer.numberOfTrailingZeros(blocks);
+			else
+			{
+				int numLegal = 0;
+				for (col = 0; col < COLUMN; ++col)
+					if (board.canPlay(col))
+						legal[numLegal++] = col;
+				col = legal[random.nextInt(numLegal)];
+			}
+			board.play(col, player);
+			moves++;
+			player = opponent;
+		}
+		for (int i = 0; i < moves; ++i)
+			board.undo();
+		return winner;
+	}
+
+	/**
+	 * Helper method. Follow the columns played out most often from the root.
+	 * @param root the root of the tree
+	 * @return the principal variation, starting with the chosen column
+	 */
+	private static int[] principalVariation(Node root)
+	{
+		int[] result = new int[ROW * COLUMN];
+		int length = 0;
+		for (Node node = root; node.children != null && node.children.length > 0; )
+		{
+			node = node.mostPlayed();
+			if (Node.visits(node.stats) == 0)
+				break;
+			result[length++] = node.column;
+		}
+		return Arrays.copyOf(result, Math.max(length, 1));
+	}
+
+	/**
+	 * This class is a node of the search tree, the position after one more column.
+	 * Its playouts and points are kept in one long, the playouts in the upper 32 bits and
+	 * the points of the player who moved into the node in the lower 32 bits,
+	 * so that a thread updates both at once with one atomic add.
+	 */
+	private static final class Node
+	{
+		static final int OPEN = -1;		// the outcome of a node where the game goes on
+		private static final VarHandle STATS;		// atomic access to stats
+		private static final VarHandle CHILDREN;	// atomic access to children
+
+		static
+		{
+			try
+			{
+				STATS = MethodHandles.lookup().findVarHandle(Node.class, "stats", long.class);
+				CHILDREN = MethodHandles.lookup().findVarHandle(Node.class, "children", Node[].class);
+			}
+			catch (ReflectiveOperationException e)
+			{
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		final int column;				// the column played into the node, -1 at the root
+		final int outcome;				// the points of the player who moved into the node if the game is over, otherwise OPEN
+		volatile long stats;			// the playouts and the points of the player who moved into the node
+		volatile Node[] children;		// one node per column worth playing, null until expanded
+
+		/**
+		 * Constructor with the column played into the node
+		 * @param column the column, -1 at the root
+		 * @param outcome the points of the player who moved into the node if the game is over, otherwise OPEN
+		 */
+		Node(int column, int outcome)
+		{
+			this.column = column;
+			this.outcome = outcome;
+		}
+
+		/**
+		 * Add playouts and points to the node
+		 * @param visits the playouts to add, negative to take virtual losses back
+		 * @param points the points to add
+		 * @return the playouts and points before adding
+		 */
+		long addVisit(int visits, int points)
+		{
+			return (long) STATS.getAndAdd(this, ((long) visits << 32) + points);
+		}
+
+		/**
+		 * Add the children of the node, unless another thread was first.
+		 * If the player to move can win, or has to block one winning column of the opponent,
+		 * only that column gets a child.
+		 * @param board the position of the node, the game must not be over
+		 * @param player the player to move
+		 */
+		void expand(Position board, char player)
+		{
+			int wins = board.winningColumns(player);
+			for (int col: ORDER)
+				if ((wins & 1 << col) != 0)
+				{
+					CHILDREN.compareAndSet(this, null, new Node[] {new Node(col, WIN)});
+					return;
+				}
+			int threats = board.winningColumns(player == AI? HUMAN : AI);
+			List<Node> result = new ArrayList<Node>(COLUMN);
+			for (int col: ORDER)
+				if (board.canPlay(col) && (Integer.bitCount(threats) != 1 || threats == 1 << col))
+					result.add(new Node(col, board.numberDisc() == ROW * COLUMN - 1? 1 : OPEN));	// the last cell draws
+			CHILDREN.compareAndSet(this, null, result.toArray(new Node[0]));
+		}
+
+		/**
+		 * Choose the child with the best upper confidence bound; a child never played out comes first
+		 * @return the child
+		 */
+		Node select()
+		{
+			Node[] nodes = children;
+			double logVisits = Math.log(Math.max(visits(stats), 1));
+			Node result = null;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (Node child: nodes)
+			{
+				long childStats = child.stats;
+				int visits = visits(childStats);
+				if (visits <= 0)
+					return child;
+				double value = points(childStats) / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+				if (value > bestValue)
+				{
+					bestValue = value;
+					result = child;
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Get the child played out most often, the first one among equals
+		 * @return the child
+		 */
+		Node mostPlayed()
+		{
+			Node result = children[0];
+			for (Node child: children)
+				if (visits(child.stats) > visits(result.stats))
+					result = child;
+			return result;
+		}
+
+		/**
+		 * Get the playouts of the stats of a node
+		 * @param stats the stats
+		 * @return the number of playouts, counting the virtual losses of threads on their way
+		 */
+		static int visits(long stats)
+		{
+			return (int) (stats >> 32);
+		}
+
+		/**
+		 * Get the points of the stats of a node
+		 * @param stats the stats
+		 * @return the points, 2 per win and 1 per draw
+		 */
+		static int points(long stats)
+		{
+			return (int) stats;
+		}
+	}
+}
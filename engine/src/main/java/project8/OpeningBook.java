@@ -0,0 +1,157 @@
+package project8;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class is a precomputed opening book, read through a memory-mapped file.
+ * The file starts with a 24 byte header (a magic number, the board it was made for and the number of entries),
+ * followed by one long per position, sorted in ascending order. The upper 60 bits
+ * of an entry are the upper 60 bits of the position key with AI to move, and the
+ * lowest 4 bits are the column to play. The key and the column are those of the
+ * canonical position, so one entry serves a position and its mirror image.
+ * Looking up a position is a binary search over the mapped file, so the book
+ * is never loaded into the heap.
+ * Books are written by BookGenerator.
+ * @author YiWang
+ */
+public class OpeningBook implements Closeable {
+	private static final long MAGIC = 0x43344F50454E4233L;	// "C4OPENB3", books recording their board
+	private static final int HEADER_LONGS = 3;				// the magic number, the board and the number of entries
+	private static final long MOVE_MASK = 0xF;				// the bits of an entry holding the column
+
+	private final FileChannel channel;
+	private final LongBuffer entries;	// the sorted entries, shared by all threads and never modified
+
+	/**
+	 * Helper constructor. Use open to read a book.
+	 * @param channel the opened book file
+	 * @param entries the mapped entries
+	 */
+	private OpeningBook(FileChannel channel, LongBuffer entries)
+	{
+		this.channel = channel;
+		this.entries = entries;
+	}
+
+	/**
+	 * Open a book file
+	 * @param file the book file written by BookGenerator
+	 * @return the opening book
+	 * @throws IOException if the file cannot be read, is not an opening book or was made for another board
+	 */
+	public static OpeningBook open(Path file) throws IOException
+	{
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try
+		{
+			LongBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asLongBuffer();
+			if (mapped.limit() < HEADER_LONGS || mapped.get(0) != MAGIC)
+				throw new IOException("Not an opening book: " + file);
+			if (mapped.get(1) != board())
+				throw new IOException("Opening book for another board: " + file);
+			long count = mapped.get(2);
+			if (count < 0 || count != mapped.limit() - HEADER_LONGS)
+				throw new IOException("Truncated opening book: " + file);
+			mapped.position(HEADER_LONGS);
+			return new OpeningBook(channel, mapped.slice());
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Write a book file
+	 * @param file the book file to write
+	 * @param keys the keys of the positions with AI to move
+	 * @param moves the column to play in each position, converted to its canonical position by Position.canonicalColumn
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path file, long[] keys, int[] moves) throws IOException
+	{
+		long[] sorted = new long[keys.length];
+		for (int i = 0; i < keys.length; ++i)
+			sorted[i] = entry(keys[i], moves[i]);
+		Arrays.sort(sorted);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))
+		{
+			out.writeLong(MAGIC);
+			out.writeLong(board());
+			out.writeLong(sorted.length);
+			for (long entry: sorted)
+				out.writeLong(entry);
+		}
+	}
+
+	/**
+	 * Look up the column to play
+	 * @param board the current position, AI to move
+	 * @return the column to play, -1 if the position is not in the book
+	 */
+	public int lookup(Position board)
+	{
+		long wanted = entry(board.key(Game.getAI()), 0);
+		int low = 0;
+		int high = entries.limit() - 1;
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			long found = entries.get(middle) & ~MOVE_MASK;
+			if (found < wanted)
+				low = middle + 1;
+			else if (found > wanted)
+				high = middle - 1;
+			else
+			{
+				int col = board.canonicalColumn((int) (entries.get(middle) & MOVE_MASK));
+				return board.canPlay(col)? col : -1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the number of positions in the book
+	 * @return the number of positions
+	 */
+	public int size()
+	{
+		return entries.limit();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	/**
+	 * Helper method. Pack a position key and a column into a book entry.
+	 * @param key the key of the position with AI to move
+	 * @param move the column to play
+	 * @return the book entry
+	 */
+	private static long entry(long key, int move)
+	{
+		return (key & ~MOVE_MASK) | move;
+	}
+
+	/**
+	 * Helper method. Describe the board the book is made for, as stored in the header.
+	 * @return the number of columns, rows and discs to link
+	 */
+	private static long board()
+	{
+		return (long) Game.getColumn() << 24 | Game.getRow() << 16 | Game.getConnect() << 8;
+	}
+}
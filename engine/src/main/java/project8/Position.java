@@ -0,0 +1,642 @@
+package project8;
+import java.util.Random;
+
+/**
+ * This class represents a Connect 4 position with bitboards.
+ * Every column uses ROW + 1 bits: bit (col * (ROW + 1) + r) is the cell of
+ * column col at height r (r = 0 is the bottom row), and the extra bit on top
+ * of each column always stays empty so that lines never wrap around columns.
+ * On the usual boards each player has one long mask of the cells occupied by its discs,
+ * and moves, legal-move checks and line checks are only a few shifts and ANDs.
+ * A board needing more than 64 bits, such as 8 x 8, keeps each mask in several longs instead.
+ * Moves and win checks then test the few cells around the new disc one by one,
+ * so they cost the same on every board size; only counting threats works on the whole board.
+ * The board size of a run is fixed, so the JIT compiler drops the representation not used.
+ * @author YiWang
+ */
+public class Position {
+	private static final char AI = Game.getAI();			// AI's disc
+	private static final char HUMAN = Game.getHuman();		// Human's disc
+	private static final char EMPTY = Game.getEmpty();		// an empty cell on the board
+	private static final int ROW = Game.getRow();			// number of rows of the board
+	private static final int COLUMN = Game.getColumn();		// number of columns of the board
+	private static final int CONNECT = Game.getConnect();	// number of discs to link
+	private static final int HEIGHT = ROW + 1;				// bits used by one column, including the sentinel bit
+	private static final int BITS = COLUMN * HEIGHT;		// bits used by the board
+	// true if the board does not fit in one long, or a line does not fit in a shift of one long
+	private static final boolean WIDE = BITS > Long.SIZE || (CONNECT - 1) * (HEIGHT + 1) >= Long.SIZE;
+	private static final int WORDS = (BITS + Long.SIZE - 1) / Long.SIZE;	// longs needed by a mask
+	private static final int PADDING = (CONNECT - 1) * (HEIGHT + 1) / Long.SIZE + 1;	// empty longs around a shifted wide mask
+	private static final long[] BOARD_WORDS = boardMask();	// every cell of the board, without the sentinel bits
+	private static final long BOARD = BOARD_WORDS[0];		// every cell of the board when it fits in one long
+	private static final long BOTTOM = bottomMask();		// the lowest cell of every column when the board fits in one long
+	private static final long[][] ZOBRIST = zobristKeys();	// random key of each player's disc on each cell
+	private static final long[][] MIRROR_ZOBRIST = mirrorKeys();	// key of each player's disc on the mirrored cell
+	private static final long AI_TO_MOVE = ZOBRIST[0][HEIGHT - 1];	// key of AI being the player to move, taken from an unused sentinel cell
+
+	private long aiMask;			// cells occupied by AI's discs, when the board fits in one long
+	private long humanMask;			// cells occupied by HUMAN's discs, when the board fits in one long
+	private final long[] aiWords;	// cells occupied by AI's discs on a wide board, otherwise null
+	private final long[] humanWords;	// cells occupied by HUMAN's discs on a wide board, otherwise null
+	private final long[] shifting;	// a wide mask between PADDING empty longs on both sides while it is shifted, otherwise null
+	private final long[] lines = new long[CONNECT];		// the cells with a given number of discs right after them
+	private final int[] height;		// bit index of the next free cell of each column
+	private int numDisc;			// number of discs on the board
+	private int lastBit;			// bit index of the disc placed last, -1 if there is none
+	private final int[] moves;		// the column of every disc in the order they were placed
+	private long hash;				// Zobrist hash of the discs, updated on every move
+	private long mirrorHash;		// Zobrist hash of the discs mirrored left to right, updated on every move
+
+	/**
+	 * Default constructor, creating an empty position
+	 */
+	public Position()
+	{
+		height = new int[COLUMN];
+		for (int col = 0; col < COLUMN; ++col)
+			height[col] = col * HEIGHT;
+		moves = new int[ROW * COLUMN];
+		lastBit = -1;
+		aiWords = WIDE? new long[WORDS] : null;
+		humanWords = WIDE? new long[WORDS] : null;
+		shifting = WIDE? new long[WORDS + 2 * PADDING] : null;
+	}
+
+	/**
+	 * Copy constructor
+	 * @param other the position to copy
+	 */
+	public Position(Position other)
+	{
+		aiMask = other.aiMask;
+		humanMask = other.humanMask;
+		aiWords = WIDE? other.aiWords.clone() : null;
+		humanWords = WIDE? other.humanWords.clone() : null;
+		shifting = WIDE? new long[WORDS + 2 * PADDING] : null;
+		height = other.height.clone();
+		numDisc = other.numDisc;
+		lastBit = other.lastBit;
+		hash = other.hash;
+		mirrorHash = other.mirrorHash;
+		moves = other.moves.clone();
+	}
+
+	/**
+	 * Get the columns in the order a search usually tries them,
+	 * from the middle outwards and the left column of each pair first
+	 * @return a new array of every column, the middle column first
+	 */
+	public static int[] middleFirst()
+	{
+		int[] order = new int[COLUMN];
+		int count = 0;
+		for (int distance = (COLUMN - 1) % 2; distance < COLUMN; distance += 2)	// twice the distance from the middle
+		{
+			order[count++] = (COLUMN - 1 - distance) / 2;
+			if (distance > 0)
+				order[count++] = (COLUMN - 1 + distance) / 2;
+		}
+		return order;
+	}
+
+	/**
+	 * Build a position from a board as returned by Game.getBoard()
+	 * @param board char[][] representing the game board
+	 * @return the position with the same discs as the board
+	 */
+	public static Position fromBoard(char[][] board)
+	{
+		Position position = new Position();
+		for (int col = 0; col < COLUMN; ++col)
+			for (int row = ROW - 1; row > -1 && board[row][col] != EMPTY; --row)
+				position.play(col, board[row][col]);
+		return position;
+	}
+
+	/**
+	 * Determine whether a disc can be dropped into the column
+	 * @param col the column, in the range between 0 to COLUMN - 1 inclusively
+	 * @return true if the column is not full, otherwise false
+	 */
+	public boolean canPlay(int col)
+	{
+		return height[col] < col * HEIGHT + ROW;
+	}
+
+	/**
+	 * Get the number of discs in the column
+	 * @param col the column, in the range between 0 to COLUMN - 1 inclusively
+	 * @return the number of discs in the column
+	 */
+	public int columnHeight(int col)
+	{
+		return height[col] - col * HEIGHT;
+	}
+
+	/**
+	 * Drop a disc of the player into the column. The column must be playable.
+	 * @param col the column, in the range between 0 to COLUMN - 1 inclusively
+	 * @param player the player dropping the disc, AI or HUMAN
+	 */
+	public void play(int col, char player)
+	{
+		int bit = height[col]++;
+		long move = 1L << bit;
+		if (player == AI)
+		{
+			if (WIDE)
+				aiWords[bit >>> 6] |= move;
+			else
+				aiMask |= move;
+			hash ^= ZOBRIST[0][bit];
+			mirrorHash ^= MIRROR_ZOBRIST[0][bit];
+		}
+		else
+		{
+			if (WIDE)
+				humanWords[bit >>> 6] |= move;
+			else
+				humanMask |= move;
+			hash ^= ZOBRIST[1][bit];
+			mirrorHash ^= MIRROR_ZOBRIST[1][bit];
+		}
+		moves[numDisc++] = col;
+		lastBit = bit;
+	}
+
+	/**
+	 * Take back the disc placed last. There must be at least one disc on the board.
+	 * Together with play this lets a search walk the game tree on one position
+	 * instead of copying it for every move.
+	 */
+	public void undo()
+	{
+		int bit = --height[moves[--numDisc]];
+		long move = 1L << bit;
+		if (WIDE? (aiWords[bit >>> 6] & move) != 0 : (aiMask & move) != 0)
+		{
+			if (WIDE)
+				aiWords[bit >>> 6] ^= move;
+			else
+				aiMask ^= move;
+			hash ^= ZOBRIST[0][bit];
+			mirrorHash ^= MIRROR_ZOBRIST[0][bit];
+		}
+		else
+		{
+			if (WIDE)
+				humanWords[bit >>> 6] ^= move;
+			else
+				humanMask ^= move;
+			hash ^= ZOBRIST[1][bit];
+			mirrorHash ^= MIRROR_ZOBRIST[1][bit];
+		}
+		lastBit = numDisc == 0? -1 : height[moves[numDisc - 1]] - 1;
+	}
+
+	/**
+	 * Determine whether dropping a disc of the player into the column wins the game.
+	 * Only the lines through the new disc are checked. The column must be playable.
+	 * @param col the column, in the range between 0 to COLUMN - 1 inclusively
+	 * @param player the player dropping the disc, AI or HUMAN
+	 * @return true if the move links CONNECT discs of the player, otherwise false
+	 */
+	public boolean isWinningMove(int col, char player)
+	{
+		if (WIDE)
+			return isLinkedThrough(player == AI? aiWords : humanWords, height[col]);
+		long move = 1L << height[col];
+		return isLinkedThrough((player == AI? aiMask : humanMask) | move, move);
+	}
+
+	/**
+	 * Find every column where dropping a disc of the player wins the game.
+	 * This is isWinningMove for every playable column at once, e.g. for fast playouts.
+	 * @param player the player dropping the disc, AI or HUMAN
+	 * @return a mask with the bit of every winning column set, bit 0 being column 0
+	 */
+	public int winningColumns(char player)
+	{
+		int result = 0;
+		if (WIDE)
+		{
+			for (int col = 0; col < COLUMN; ++col)
+				if (canPlay(col) && isWinningMove(col, player))
+					result |= 1 << col;
+			return result;
+		}
+		long mask = player == AI? aiMask : humanMask;
+		long playable = (aiMask | humanMask) + BOTTOM & BOARD;	// the lowest empty cell of every column that is not full
+		long wins = (winningCells(mask, 1) | winningCells(mask, HEIGHT) | winningCells(mask, HEIGHT - 1)
+				| winningCells(mask, HEIGHT + 1)) & playable;
+		for (; wins != 0; wins &= wins - 1)
+			result |= 1 << Long.numberOfTrailingZeros(wins) / HEIGHT;
+		return result;
+	}
+
+	/**
+	 * Determine whether the disc placed last linked CONNECT discs.
+	 * Only the lines through that disc are checked.
+	 * @return true if the last move won the game, otherwise false
+	 */
+	public boolean lastMoveWon()
+	{
+		if (lastBit == -1)
+			return false;
+		if (WIDE)
+			return isLinkedThrough(isSet(aiWords, lastBit)? aiWords : humanWords, lastBit);
+		long move = 1L << lastBit;
+		return isLinkedThrough((aiMask & move) != 0? aiMask : humanMask, move);
+	}
+
+	/**
+	 * Determine whether the board is full
+	 * @return true if there is no empty cell left, otherwise false
+	 */
+	public boolean isFull()
+	{
+		return numDisc == ROW * COLUMN;
+	}
+
+	/**
+	 * Get the key of the position for the transposition table.
+	 * The key is the Zobrist hash of the discs combined with the player to move,
+	 * so that it is the same however the position was reached.
+	 * A position and its mirror image score the same, so both get the key of the one
+	 * with the smaller hash, called the canonical position; see canonicalColumn.
+	 * @param player the player to move, AI or HUMAN
+	 * @return the key of the position
+	 */
+	public long key(char player)
+	{
+		long canonical = Math.min(hash, mirrorHash);
+		return player == AI? canonical ^ AI_TO_MOVE : canonical;
+	}
+
+	/**
+	 * Convert a column between this position and its canonical position, whose key it shares.
+	 * A column stored under the key must be converted, since the canonical position
+	 * may be the mirror image of this one. Converting twice gives the column back.
+	 * @param col a column, or -1 for no column
+	 * @return the column at the same place in the other position, -1 if col is -1
+	 */
+	public int canonicalColumn(int col)
+	{
+		return col < 0 || hash <= mirrorHash? col : COLUMN - 1 - col;
+	}
+
+	/**
+	 * Determine whether the position is its own mirror image, so that a column and
+	 * its mirrored column lead to positions which score the same
+	 * @return true if the discs are symmetric left to right, otherwise false
+	 */
+	public boolean isSymmetric()
+	{
+		return hash == mirrorHash;
+	}
+
+	/**
+	 * Get the disc at the cell
+	 * @param row the row of the cell, 0 being the top row as in Game.getBoard()
+	 * @param col the column of the cell
+	 * @return AI, HUMAN or EMPTY
+	 */
+	public char cell(int row, int col)
+	{
+		int bit = col * HEIGHT + ROW - 1 - row;
+		if (WIDE)
+			return isSet(aiWords, bit)? AI : isSet(humanWords, bit)? HUMAN : EMPTY;
+		if ((aiMask & 1L << bit) != 0)
+			return AI;
+		if ((humanMask & 1L << bit) != 0)
+			return HUMAN;
+		return EMPTY;
+	}
+
+	/**
+	 * Count the number of discs on the board
+	 * @return the number of discs on the board
+	 */
+	public int numberDisc()
+	{
+		return numDisc;
+	}
+
+	/**
+	 * Determine whether the game is over in this position.
+	 * The whole board is checked, so it also works for positions built by fromBoard;
+	 * after a move prefer lastMoveWon() and isFull().
+	 * @return 0 if the board is full; 1 if a player has CONNECT discs linked; -1 if the game is not over
+	 */
+	public int isGameOver()
+	{
+		if (WIDE? isLinked(aiWords) || isLinked(humanWords) : isLinked(aiMask) || isLinked(humanMask))
+			return 1;
+		if (isFull())
+			return 0;
+		return -1;
+	}
+
+	/**
+	 * Build a char[][] view of the position, in the same layout as Game.getBoard()
+	 * @return a new char[][] representing the board
+	 */
+	public char[][] toBoard()
+	{
+		char[][] board = new char[ROW][COLUMN];
+		for (int i = 0; i < ROW; ++i)
+			for (int j = 0; j < COLUMN; ++j)
+				board[i][j] = cell(i, j);
+		return board;
+	}
+
+	/**
+	 * Count the empty cells where the player could link CONNECT discs after dropping a disc into the column.
+	 * A column making more such threats is usually a stronger move.
+	 * @param col the column, it must be playable
+	 * @param player the player dropping the disc, AI or HUMAN
+	 * @return the number of empty cells that would win the game for the player
+	 */
+	public int countThreats(int col, char player)
+	{
+		if (WIDE)
+			return countWideThreats(col, player == AI? aiWords : humanWords);
+		long move = 1L << height[col];
+		long mask = (player == AI? aiMask : humanMask) | move;
+		long threats = winningCells(mask, 1) | winningCells(mask, HEIGHT)
+				| winningCells(mask, HEIGHT - 1) | winningCells(mask, HEIGHT + 1);
+		return Long.bitCount(threats & BOARD & ~(aiMask | humanMask | move));
+	}
+
+	/**
+	 * Helper method used for counting the threats on a wide board, one long of the board at a time
+	 * @param col the column, it must be playable
+	 * @param mask the discs of the player dropping the disc
+	 * @return the number of empty cells that would win the game for the player
+	 */
+	private int countWideThreats(int col, long[] mask)
+	{
+		int bit = height[col];
+		System.arraycopy(mask, 0, shifting, PADDING, WORDS);
+		shifting[PADDING + (bit >>> 6)] |= 1L << bit;
+		int count = 0;
+		for (int word = 0; word < WORDS; ++word)
+		{
+			long threats = winningCells(word, 1) | winningCells(word, HEIGHT)
+					| winningCells(word, HEIGHT - 1) | winningCells(word, HEIGHT + 1);
+			long empty = BOARD_WORDS[word] & ~(aiWords[word] | humanWords[word] | shifting[PADDING + word]);
+			count += Long.bitCount(threats & empty);
+		}
+		return count;
+	}
+
+	/**
+	 * Helper method used for checking if there are CONNECT discs linked in the mask.
+	 * Shifting by 1 checks vertical lines, by HEIGHT horizontal lines,
+	 * by HEIGHT - 1 and HEIGHT + 1 the two diagonals.
+	 * @param mask the discs of one player
+	 * @return true if there are CONNECT discs linked, otherwise false
+	 */
+	private static boolean isLinked(long mask)
+	{
+		return lineStarts(mask, 1) != 0 || lineStarts(mask, HEIGHT) != 0
+				|| lineStarts(mask, HEIGHT - 1) != 0 || lineStarts(mask, HEIGHT + 1) != 0;
+	}
+
+	/**
+	 * Helper method used for checking if there are CONNECT discs linked in the mask of a wide board
+	 * @param mask the discs of one player
+	 * @return true if there are CONNECT discs linked, otherwise false
+	 */
+	private static boolean isLinked(long[] mask)
+	{
+		for (int bit = 0; bit < BITS; ++bit)
+			if (isSet(mask, bit) && isLinkedThrough(mask, bit))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Helper method used for checking if there are CONNECT discs linked through the cell.
+	 * A line through the cell starts at most CONNECT - 1 steps before it in every direction.
+	 * @param mask the discs of one player, including the cell
+	 * @param move the cell in interest
+	 * @return true if there are CONNECT discs linked through the cell, otherwise false
+	 */
+	private static boolean isLinkedThrough(long mask, long move)
+	{
+		return isLinkedThrough(mask, move, 1) || isLinkedThrough(mask, move, HEIGHT)
+				|| isLinkedThrough(mask, move, HEIGHT - 1) || isLinkedThrough(mask, move, HEIGHT + 1);
+	}
+
+	/**
+	 * Helper method used for checking if there are CONNECT discs linked through the cell at one direction
+	 * @param mask the discs of one player, including the cell
+	 * @param move the cell in interest
+	 * @param shift the direction; 1, HEIGHT, HEIGHT - 1 or HEIGHT + 1
+	 * @return true if there are CONNECT discs linked, otherwise false
+	 */
+	private static boolean isLinkedThrough(long mask, long move, int shift)
+	{
+		long cells = move;		// the cells from which a line through the move starts
+		for (int i = 1; i < CONNECT; ++i)
+			cells |= move >>> i * shift;
+		return (lineStarts(mask, shift) & cells) != 0;
+	}
+
+	/**
+	 * Helper method used for checking if there are CONNECT discs linked through the cell of a wide board
+	 * @param mask the discs of one player; the cell itself counts as the player's disc
+	 * @param bit the cell in interest
+	 * @return true if there are CONNECT discs linked through the cell, otherwise false
+	 */
+	private static boolean isLinkedThrough(long[] mask, int bit)
+	{
+		return isLinkedThrough(mask, bit, 1) || isLinkedThrough(mask, bit, HEIGHT)
+				|| isLinkedThrough(mask, bit, HEIGHT - 1) || isLinkedThrough(mask, bit, HEIGHT + 1);
+	}
+
+	/**
+	 * Helper method used for checking if there are CONNECT discs linked through the cell of a wide board
+	 * at one direction. The discs next to the cell are counted both ways; the sentinel bits are always
+	 * empty, so the count stops at the edges of the board.
+	 * @param mask the discs of one player; the cell itself counts as the player's disc
+	 * @param bit the cell in interest
+	 * @param shift the direction; 1, HEIGHT, HEIGHT - 1 or HEIGHT + 1
+	 * @return true if there are CONNECT discs linked, otherwise false
+	 */
+	private static boolean isLinkedThrough(long[] mask, int bit, int shift)
+	{
+		int linked = 1;
+		for (int next = bit + shift; linked < CONNECT && next < BITS && isSet(mask, next); next += shift)
+			linked++;
+		for (int next = bit - shift; linked < CONNECT && next >= 0 && isSet(mask, next); next -= shift)
+			linked++;
+		return linked == CONNECT;
+	}
+
+	/**
+	 * Helper method used for finding the first cell of every line of CONNECT discs at one direction
+	 * @param mask the discs of one player
+	 * @param shift the direction; 1, HEIGHT, HEIGHT - 1 or HEIGHT + 1
+	 * @return the cells starting a line
+	 */
+	private static long lineStarts(long mask, int shift)
+	{
+		if (CONNECT == 4)		// the usual game, unrolled
+		{
+			long pairs = mask & (mask >>> shift);
+			return pairs & (pairs >>> 2 * shift);
+		}
+		long result = mask;
+		for (int i = 1; i < CONNECT; ++i)
+			result &= mask >>> i * shift;
+		return result;
+	}
+
+	/**
+	 * Helper method used for finding the cells that complete a line of CONNECT at one direction,
+	 * whether the missing disc is at an end of the line or inside it
+	 * @param mask the discs of one player
+	 * @param shift the direction; 1, HEIGHT, HEIGHT - 1 or HEIGHT + 1
+	 * @return the cells completing a line, occupied or not, including cells outside the board
+	 */
+	private long winningCells(long mask, int shift)
+	{
+		if (CONNECT == 4)		// the usual game, unrolled
+		{
+			long result = (mask << shift) & (mask << 2 * shift) & (mask << 3 * shift);
+			result |= (mask >>> shift) & (mask >>> 2 * shift) & (mask >>> 3 * shift);
+			long pairs = (mask << shift) & (mask << 2 * shift);
+			result |= pairs & (mask >>> shift);
+			pairs = (mask >>> shift) & (mask >>> 2 * shift);
+			result |= pairs & (mask << shift);
+			return result;
+		}
+		lines[0] = -1L;
+		for (int count = 1; count < CONNECT; ++count)
+			lines[count] = lines[count - 1] & mask >>> count * shift;
+		long result = lines[CONNECT - 1];
+		long before = -1L;		// the cells with count discs right before them
+		for (int count = 1; count < CONNECT; ++count)
+		{
+			before &= mask << count * shift;
+			result |= before & lines[CONNECT - 1 - count];
+		}
+		return result;
+	}
+
+	/**
+	 * Helper method used for finding the cells of one long of a wide board that complete a line of CONNECT,
+	 * in the same way as winningCells on one long. The mask is the one in shifting.
+	 * @param word the index of the long
+	 * @param shift the direction; 1, HEIGHT, HEIGHT - 1 or HEIGHT + 1
+	 * @return the cells of the long completing a line, occupied or not, including cells outside the board
+	 */
+	private long winningCells(int word, int shift)
+	{
+		if (CONNECT == 4)		// the usual game, unrolled
+		{
+			long before1 = shifted(word, -shift);
+			long before2 = before1 & shifted(word, -2 * shift);
+			long after1 = shifted(word, shift);
+			long after2 = after1 & shifted(word, 2 * shift);
+			return before2 & shifted(word, -3 * shift) | after2 & shifted(word, 3 * shift) | before2 & after1 | after2 & before1;
+		}
+		lines[0] = -1L;
+		for (int count = 1; count < CONNECT; ++count)
+			lines[count] = lines[count - 1] & shifted(word, count * shift);
+		long result = lines[CONNECT - 1];
+		long before = -1L;
+		for (int count = 1; count < CONNECT; ++count)
+		{
+			before &= shifted(word, -count * shift);
+			result |= before & lines[CONNECT - 1 - count];
+		}
+		return result;
+	}
+
+	/**
+	 * Helper method used for shifting the wide mask in shifting.
+	 * The empty longs around the mask spare checking the bounds.
+	 * @param word the index of the long wanted
+	 * @param offset how far away the bit moved to each bit is; negative for a bit below
+	 * @return the long of the mask shifted so that bit b holds bit b + offset of the mask
+	 */
+	private long shifted(int word, int offset)
+	{
+		int source = PADDING + word + (offset >> 6);	// the long holding bit word * 64 + offset
+		int bit = offset & 63;
+		return shifting[source] >>> bit | shifting[source + 1] << 1 << 63 - bit;
+	}
+
+	/**
+	 * Helper method used for testing a cell of a mask of a wide board
+	 * @param mask the mask
+	 * @param bit the cell
+	 * @return true if the cell is set in the mask, otherwise false
+	 */
+	private static boolean isSet(long[] mask, int bit)
+	{
+		return (mask[bit >>> 6] & 1L << bit) != 0;
+	}
+
+	/**
+	 * Helper method used for generating the Zobrist keys.
+	 * A fixed seed keeps the keys the same in every run.
+	 * @return the random key of each player's disc on each bit of the board
+	 */
+	private static long[][] zobristKeys()
+	{
+		Random random = new Random(0x434F4E4E454354L);
+		long[][] keys = new long[2][COLUMN * HEIGHT];
+		for (long[] playerKeys: keys)
+			for (int bit = 0; bit < playerKeys.length; ++bit)
+				playerKeys[bit] = random.nextLong();
+		return keys;
+	}
+
+	/**
+	 * Helper method used for generating the Zobrist keys of the mirror image,
+	 * each cell getting the key of the cell in the mirrored column.
+	 * @return the key of each player's disc on the mirror of each bit of the board
+	 */
+	private static long[][] mirrorKeys()
+	{
+		long[][] keys = new long[2][COLUMN * HEIGHT];
+		for (int player = 0; player < keys.length; ++player)
+			for (int bit = 0; bit < keys[player].length; ++bit)
+				keys[player][bit] = ZOBRIST[player][(COLUMN - 1 - bit / HEIGHT) * HEIGHT + bit % HEIGHT];
+		return keys;
+	}
+
+	/**
+	 * Helper method used for generating the mask of the lowest cell of every column.
+	 * @return the bit of the lowest cell of every column, 0 if the board does not fit in one long
+	 */
+	private static long bottomMask()
+	{
+		if (WIDE)
+			return 0;
+		long mask = 0;
+		for (int col = 0; col < COLUMN; ++col)
+			mask |= 1L << col * HEIGHT;
+		return mask;
+	}
+
+	/**
+	 * Helper method used for generating the mask of the cells of the board.
+	 * @return the bits of every cell, without the sentinel bit of each column, in as many longs as the board needs
+	 */
+	private static long[] boardMask()
+	{
+		long[] mask = new long[WORDS];
+		for (int col = 0; col < COLUMN; ++col)
+			for (int row = 0; row < ROW; ++row)
+			{
+				int bit = col * HEIGHT + row;
+				mask[bit >>> 6] |= 1L << bit;
+			}
+		return mask;
+	}
+}
@@ -0,0 +1,337 @@
+package project8;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class is a cache of searched positions kept in a memory-mapped file, so that
+ * it outlives the JVM and can be shared by every engine process on the host mapping the same file.
+ * Like the transposition table it remembers the score, the bound type, the depth and the best move
+ * of a position, but only of the positions searched deep enough to be worth keeping.
+ * <p>
+ * The file starts with a 64 byte header (a magic number, the board it was made for, the number
+ * of buckets, a check of those and the clock), followed by the buckets. Every bucket is 64 bytes,
+ * one cache line, with 4 slots of the position key XOR the data and the data, which is an entry
+ * of TranspositionTable with a time stamp in its upper bits. Reading and writing the slots takes
+ * no lock: every slot is read and written as two atomic longs, and a slot torn by two writers,
+ * in this process or another one, no longer matches its key and is simply treated as missing.
+ * <p>
+ * The clock in the header advances with every search of any process. A slot found or stored gets
+ * the current time stamp, and a full bucket gives up the slot whose depth minus its age is the least,
+ * if that is no more than the depth of the new entry, so entries that are not used any more age out,
+ * however deep they were searched.
+ * <p>
+ * A new file is made full length, so every slot empty, then the header is written with the magic
+ * number written last, each step forced to the disk. A file whose header was never completed, or does
+ * not pass the check, is made again when it is opened, and an entry written only in part is never found,
+ * so a process crashing at any time leaves a usable cache. Opening takes a file lock, so two processes
+ * never make the same file at once.
+ * @author YiWang
+ */
+public class PositionCache implements Closeable {
+	private static final long MAGIC = 0x4334434143484531L;	// "C4CACHE1"
+	private static final int MAX_MEGABYTES = 1024;		// the largest cache, so that it can be mapped at once
+	private static final int HEADER_BYTES = 64;			// the header takes the place of one bucket
+	private static final int BOARD_OFFSET = 8;			// where the header keeps the board
+	private static final int BUCKETS_OFFSET = 16;		// where the header keeps the number of buckets
+	private static final int CHECK_OFFSET = 24;			// where the header keeps the check of the fields above
+	private static final int CLOCK_OFFSET = 32;			// where the header keeps the clock
+	private static final int SLOT_BYTES = 16;			// the key XOR the data, then the data
+	private static final int BUCKET_BYTES = 64;			// 4 slots, one cache line
+	private static final int STAMP_SHIFT = TranspositionTable.GENERATION_SHIFT;	// the time stamp replaces the generation of the entry
+	private static final long STAMP_MASK = (1L << (Long.SIZE - STAMP_SHIFT)) - 1;	// the time stamp wraps around
+	private static final long ENTRY_MASK = (1L << STAMP_SHIFT) - 1;		// the TranspositionTable entry of the data
+	private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;	// the whole file, shared by all threads
+	private final int mask;					// number of buckets - 1, the number of buckets is a power of 2
+
+	/**
+	 * Helper constructor. Use open to open a cache.
+	 * @param channel the opened cache file
+	 * @param buffer the mapped file
+	 * @param buckets number of buckets
+	 */
+	private PositionCache(FileChannel channel, MappedByteBuffer buffer, int buckets)
+	{
+		this.channel = channel;
+		this.buffer = buffer;
+		mask = buckets - 1;
+	}
+
+	/**
+	 * Open a cache file, making it if it does not exist.
+	 * An existing cache keeps its entries and its size.
+	 * @param file the cache file
+	 * @param megabytes the size of a new cache, from 1 to 1024, rounded down to a power of 2
+	 * @return the cache
+	 * @throws IOException if the file cannot be read or written, is not a cache or was made for another board
+	 */
+	public static PositionCache open(Path file, int megabytes) throws IOException
+	{
+		if (megabytes < 1 || megabytes > MAX_MEGABYTES)
+			throw new IllegalArgumentException("Invalid cache size");
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try
+		{
+			int buckets;
+			FileLock lock = channel.lock();	// only one process checks or makes the header at a time
+			try
+			{
+				buckets = readHeader(channel, file);
+				if (buckets == 0)
+				{
+					buckets = (Integer.highestOneBit(megabytes) << 20) / BUCKET_BYTES;
+					writeHeader(channel, buckets);
+				}
+			}
+			finally
+			{
+				lock.release();
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) buckets * BUCKET_BYTES);
+			return new PositionCache(channel, buffer, buckets);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Look up a position. A position found is stamped with the current time.
+	 * @param key the key of the position
+	 * @return the packed entry of the position as TranspositionTable.probe returns it, 0 if the position is not in the cache
+	 */
+	public long probe(long key)
+	{
+		int bucket = bucket(key);
+		for (int slot = bucket; slot < bucket + BUCKET_BYTES; slot += SLOT_BYTES)
+		{
+			long data = (long) LONG.getAcquire(buffer, slot + Long.BYTES);
+			if (data != 0 && ((long) LONG.getAcquire(buffer, slot) ^ data) == key)
+			{
+				long stamp = stamp();
+				if (data >>> STAMP_SHIFT != stamp)
+					write(slot, key, (data & ENTRY_MASK) | stamp << STAMP_SHIFT);
+				return data & ENTRY_MASK;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Store a searched position. A position already stored deeper is kept as it is.
+	 * @param key the key of the position
+	 * @param score the score of the position
+	 * @param depth how deep the position was searched, between 0 and 254 inclusively
+	 * @param bound TranspositionTable.EXACT, LOWER or UPPER
+	 * @param move the best move found, -1 if there is none
+	 */
+	public void store(long key, long score, int depth, int bound, int move)
+	{
+		long stamp = stamp();
+		int bucket = bucket(key);
+		int victim = -1;		// the slot to write
+		long victimValue = Long.MAX_VALUE;	// the depth of the entry in that slot minus its age
+		for (int slot = bucket; slot < bucket + BUCKET_BYTES; slot += SLOT_BYTES)
+		{
+			long data = (long) LONG.getAcquire(buffer, slot + Long.BYTES);
+			if (data == 0)		// an empty slot, unless the position is found further on
+			{
+				if (victimValue != Long.MIN_VALUE)
+				{
+					victim = slot;
+					victimValue = Long.MIN_VALUE;
+				}
+				continue;
+			}
+			int oldDepth = TranspositionTable.depth(data & ENTRY_MASK);
+			if (((long) LONG.getAcquire(buffer, slot) ^ data) == key)
+			{
+				if (oldDepth > depth)
+					return;
+				victim = slot;
+				victimValue = Long.MIN_VALUE;
+				break;
+			}
+			long value = oldDepth - (stamp - (data >>> STAMP_SHIFT) & STAMP_MASK);
+			if (value < victimValue)
+			{
+				victim = slot;
+				victimValue = value;
+			}
+		}
+		if (victimValue > depth)	// every entry of the bucket is worth more
+			return;
+		write(victim, key, TranspositionTable.pack(score, depth, bound, move, 0) | stamp << STAMP_SHIFT);
+	}
+
+	/**
+	 * Advance the clock of the cache, e.g. for every search.
+	 * The clock is shared by all processes using the cache file.
+	 */
+	public void tick()
+	{
+		LONG.getAndAdd(buffer, CLOCK_OFFSET, 1L);
+	}
+
+	/**
+	 * Count the positions in the cache. This looks at every slot.
+	 * @return the number of positions
+	 */
+	public int count()
+	{
+		int count = 0;
+		for (int slot = HEADER_BYTES; slot < buffer.capacity(); slot += SLOT_BYTES)
+			if ((long) LONG.getAcquire(buffer, slot + Long.BYTES) != 0)
+				count++;
+		return count;
+	}
+
+	/**
+	 * Get the size of the cache
+	 * @return the size of the cache file in megabytes
+	 */
+	public int getMegabytes()
+	{
+		return (int) ((long) (mask + 1) * BUCKET_BYTES >> 20);
+	}
+
+	/**
+	 * Write the cache to the disk and close it
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		buffer.force();
+		channel.close();
+	}
+
+	/**
+	 * Helper method. Get where the bucket of a position starts.
+	 * @param key the key of the position
+	 * @return the byte offset of the bucket in the file
+	 */
+	private int bucket(long key)
+	{
+		return HEADER_BYTES + ((int) key & mask) * BUCKET_BYTES;
+	}
+
+	/**
+	 * Helper method. Get the time stamp of the current time of the clock.
+	 * @return the time stamp
+	 */
+	private long stamp()
+	{
+		return (long) LONG.getAcquire(buffer, CLOCK_OFFSET) & STAMP_MASK;
+	}
+
+	/**
+	 * Helper method. Write a slot, without a lock.
+	 * @param slot the byte offset of the slot in the file
+	 * @param key the key of the position
+	 * @param data the data of the slot, never 0
+	 */
+	private void write(int slot, long key, long data)
+	{
+		LONG.setRelease(buffer, slot + Long.BYTES, data);
+		LONG.setRelease(buffer, slot, key ^ data);
+	}
+
+	/**
+	 * Helper method. Read and check the header of a cache file.
+	 * @param channel the cache file, locked
+	 * @param file the name of the cache file
+	 * @return the number of buckets, 0 if the cache has to be made
+	 * @throws IOException if the file cannot be read, is not a cache or was made for another board
+	 */
+	private static int readHeader(FileChannel channel, Path file) throws IOException
+	{
+		long size = channel.size();
+		if (size == 0)		// a new file
+			return 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+		while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+			;
+		if (header.hasRemaining())
+			throw new IOException("Not a position cache: " + file);
+		long magic = header.getLong(0);
+		if (magic == 0)		// the header was never completed
+			return 0;
+		if (magic != MAGIC)
+			throw new IOException("Not a position cache: " + file);
+		long board = header.getLong(BOARD_OFFSET);
+		long buckets = header.getLong(BUCKETS_OFFSET);
+		if (header.getLong(CHECK_OFFSET) != check(board, buckets) || Long.bitCount(buckets) != 1
+				|| buckets > ((long) MAX_MEGABYTES << 20) / BUCKET_BYTES || size != HEADER_BYTES + buckets * BUCKET_BYTES)
+			return 0;		// a damaged header, the entries cannot be trusted
+		if (board != board())
+			throw new IOException("Position cache for another board: " + file);
+		return (int) buckets;
+	}
+
+	/**
+	 * Helper method. Make a new cache file with every slot empty.
+	 * @param channel the cache file, locked
+	 * @param buckets number of buckets
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeHeader(FileChannel channel, int buckets) throws IOException
+	{
+		channel.truncate(0);		// drop every old entry
+		long size = HEADER_BYTES + (long) buckets * BUCKET_BYTES;
+		channel.write(ByteBuffer.allocate(1), size - 1);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+		header.putLong(BOARD_OFFSET, board());
+		header.putLong(BUCKETS_OFFSET, buckets);
+		header.putLong(CHECK_OFFSET, check(board(), buckets));
+		writeFully(channel, header, 0);
+		channel.force(true);
+		writeFully(channel, ByteBuffer.allocate(Long.BYTES).order(ByteOrder.nativeOrder()).putLong(0, MAGIC), 0);
+		channel.force(true);
+	}
+
+	/**
+	 * Helper method. Write all of a buffer to the file.
+	 * @param channel the file
+	 * @param data the bytes to write
+	 * @param position where to write them in the file
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException
+	{
+		while (data.hasRemaining())
+			position += channel.write(data, position);
+	}
+
+	/**
+	 * Helper method. Compute the check of the header fields.
+	 * @param board the board field
+	 * @param buckets the number of buckets
+	 * @return the check field
+	 */
+	private static long check(long board, long buckets)
+	{
+		return Long.rotateLeft(board, 29) ^ buckets * 0x9E3779B97F4A7C15L ^ MAGIC;
+	}
+
+	/**
+	 * Helper method. Describe the board of this program in the header of a cache.
+	 * @return the board field of the header
+	 */
+	private static long board()
+	{
+		return (long) Game.getColumn() << 24 | Game.getRow() << 16 | Game.getConnect() << 8;
+	}
+}
@@ -0,0 +1,40 @@
+package project8;
+
+/**
+ * A listener notified by GameAI about its searches, e.g. for collecting metrics
+ * or for showing the progress of a search while it goes on.
+ * It is called on the searching thread, so it should return quickly.
+ * @author YiWang
+ */
+public interface SearchListener {
+	/**
+	 * Called when a search is finished
+	 * @param stats the result of the search
+	 */
+	void searchFinished(SearchStats stats);
+
+	/**
+	 * Called when the search has completed a depth, before it goes on with the next one.
+	 * The timed search reports every depth. The search of fixed depth goes straight to its depth
+	 * and reports only that one, unless reportEveryDepth asks for every depth.
+	 * A solved endgame is reported once, with the depth to the end of the game.
+	 * The listener may call GameAI.stop(), e.g. once the answer is good enough;
+	 * the search then finishes with the result of this depth.
+	 * @param update the result of the completed depth
+	 */
+	default void depthCompleted(SearchUpdate update)
+	{
+	}
+
+	/**
+	 * Whether a search of fixed depth should deepen one depth at a time, so that depthCompleted
+	 * is called for every depth and stop() leaves the deepest completed one.
+	 * Deepening searches more nodes and may choose another column, so it is off by default,
+	 * and a listener only collecting totals leaves the search unchanged.
+	 * @return true to have every depth of a search of fixed depth reported, otherwise false
+	 */
+	default boolean reportEveryDepth()
+	{
+		return false;
+	}
+}
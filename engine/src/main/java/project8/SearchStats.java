@@ -0,0 +1,182 @@
+package project8;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * This class is the result of one GameAI search: the chosen column together
+ * with what the search did to find it.
+ * @author YiWang
+ */
+public class SearchStats {
+	private final int column;				// the column the AI chooses
+	private final long score;				// the score of the column, positive when AI is better
+	private final int depth;				// the deepest completed search
+	private final long nodes;				// number of nodes searched
+	private final long leafEvaluations;		// number of boards evaluated at the search horizon
+	private final long[] cutoffs;			// number of beta cutoffs at each ply, 0 being the root
+	private final long firstMoveCutoffs;	// number of beta cutoffs by the first column tried
+	private final Duration elapsed;			// how long the search took
+	private final int[] principalVariation;	// the expected columns played from the current position
+
+	/**
+	 * Constructor with every result of the search
+	 * @param column the column the AI chooses
+	 * @param score the score of the column, positive when AI is better
+	 * @param depth the deepest completed search, 0 if the column did not need a search
+	 * @param nodes number of nodes searched
+	 * @param leafEvaluations number of boards evaluated at the search horizon
+	 * @param cutoffs number of beta cutoffs at each ply, 0 being the root
+	 * @param firstMoveCutoffs number of beta cutoffs by the first column tried
+	 * @param elapsed how long the search took
+	 * @param principalVariation the expected columns played from the current position, starting with column
+	 */
+	public SearchStats(int column, long score, int depth, long nodes, long leafEvaluations, long[] cutoffs,
+			long firstMoveCutoffs, Duration elapsed, int[] principalVariation)
+	{
+		this.column = column;
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.leafEvaluations = leafEvaluations;
+		this.cutoffs = cutoffs.clone();
+		this.firstMoveCutoffs = firstMoveCutoffs;
+		this.elapsed = elapsed;
+		this.principalVariation = principalVariation.clone();
+	}
+
+	/**
+	 * Get the column the AI chooses
+	 * @return the column, in the range between 0 to Game.getColumn() - 1 inclusively
+	 */
+	public int getColumn()
+	{
+		return column;
+	}
+
+	/**
+	 * Get the score of the chosen column
+	 * @return the score, positive when AI is better
+	 */
+	public long getScore()
+	{
+		return score;
+	}
+
+	/**
+	 * Get the deepest completed search
+	 * @return the depth, 0 if the column did not need a search
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	/**
+	 * Get the number of nodes searched, including the helper threads
+	 * @return the number of nodes
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+
+	/**
+	 * Get the number of boards evaluated at the search horizon
+	 * @return the number of leaf evaluations
+	 */
+	public long getLeafEvaluations()
+	{
+		return leafEvaluations;
+	}
+
+	/**
+	 * Get the number of beta cutoffs at each ply
+	 * @return a copy of the cutoffs, index 0 being the root
+	 */
+	public long[] getCutoffs()
+	{
+		return cutoffs.clone();
+	}
+
+	/**
+	 * Get the total number of beta cutoffs
+	 * @return the number of beta cutoffs
+	 */
+	public long getTotalCutoffs()
+	{
+		long total = 0;
+		for (long count: cutoffs)
+			total += count;
+		return total;
+	}
+
+	/**
+	 * Get the number of beta cutoffs caused by the first column tried
+	 * @return the number of first-move cutoffs
+	 */
+	public long getFirstMoveCutoffs()
+	{
+		return firstMoveCutoffs;
+	}
+
+	/**
+	 * Get how often the first column tried caused the beta cutoff.
+	 * The closer to 1, the better the columns are ordered.
+	 * @return the rate between 0 and 1, 0 if there was no cutoff
+	 */
+	public double getFirstMoveCutoffRate()
+	{
+		long total = getTotalCutoffs();
+		return total == 0? 0 : (double) firstMoveCutoffs / total;
+	}
+
+	/**
+	 * Get the effective branching factor, the number of columns the search looked at per ply on average.
+	 * It is the depth-th root of the number of nodes, so the better the columns are ordered, the lower it is.
+	 * @return the effective branching factor, 0 if there was no search
+	 */
+	public double getEffectiveBranchingFactor()
+	{
+		return depth == 0 || nodes == 0? 0 : Math.pow(nodes, 1.0 / depth);
+	}
+
+	/**
+	 * Get how long the search took
+	 * @return the elapsed time
+	 */
+	public Duration getElapsed()
+	{
+		return elapsed;
+	}
+
+	/**
+	 * Get the number of nodes searched per second
+	 * @return the nodes per second
+	 */
+	public double getNodesPerSecond()
+	{
+		long nanos = elapsed.toNanos();
+		return nanos == 0? 0 : nodes * 1e9 / nanos;
+	}
+
+	/**
+	 * Get the principal variation, the columns both players are expected to play
+	 * @return a copy of the principal variation, starting with the chosen column
+	 */
+	public int[] getPrincipalVariation()
+	{
+		return principalVariation.clone();
+	}
+
+	@Override
+	public String toString()
+	{
+		int lastPly = cutoffs.length;
+		while (lastPly > 0 && cutoffs[lastPly - 1] == 0)
+			lastPly--;
+		return "column=" + column + " score=" + score + " depth=" + depth + " nodes=" + nodes
+				+ " leaves=" + leafEvaluations + " cutoffs=" + Arrays.toString(Arrays.copyOf(cutoffs, lastPly))
+				+ String.format(" firstMoveCutoffRate=%.3f ebf=%.2f", getFirstMoveCutoffRate(), getEffectiveBranchingFactor())
+				+ " elapsed=" + elapsed.toMillis() + "ms pv=" + Arrays.toString(principalVariation);
+	}
+}
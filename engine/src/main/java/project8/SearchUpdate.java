@@ -0,0 +1,127 @@
+package project8;
+import java.time.Duration;
+
+/**
+ * This class is the result of one completed depth of a GameAI search, reported
+ * to the SearchListener while the search goes on with the next depth.
+ * Besides the best column it holds the score of every column. The root search only
+ * proves the score of the best column exactly: any other column is shown to be
+ * no better with a narrow window, so its score is usually only an upper bound.
+ * @author YiWang
+ */
+public class SearchUpdate {
+	/** The bound of a column that was not searched, e.g. a full column */
+	public static final int NOT_SEARCHED = -1;
+
+	private final int column;				// the best column found so far
+	private final long score;				// the score of the column, positive when AI is better
+	private final int depth;				// the depth just completed
+	private final long[] columnScores;		// the score of every column
+	private final int[] columnBounds;		// how the score of every column is known
+	private final long nodes;				// number of nodes searched so far
+	private final Duration elapsed;			// how long the search has taken so far
+
+	/**
+	 * Constructor with every result of the completed depth
+	 * @param column the best column found so far
+	 * @param score the score of the column, positive when AI is better
+	 * @param depth the depth just completed
+	 * @param columnScores the score of every column
+	 * @param columnBounds TranspositionTable.EXACT, LOWER or UPPER for every column, NOT_SEARCHED if it was not searched
+	 * @param nodes number of nodes searched so far
+	 * @param elapsed how long the search has taken so far
+	 */
+	public SearchUpdate(int column, long score, int depth, long[] columnScores, int[] columnBounds, long nodes, Duration elapsed)
+	{
+		this.column = column;
+		this.score = score;
+		this.depth = depth;
+		this.columnScores = columnScores.clone();
+		this.columnBounds = columnBounds.clone();
+		this.nodes = nodes;
+		this.elapsed = elapsed;
+	}
+
+	/**
+	 * Get the best column found so far
+	 * @return the column, in the range between 0 to Game.getColumn() - 1 inclusively
+	 */
+	public int getColumn()
+	{
+		return column;
+	}
+
+	/**
+	 * Get the score of the best column
+	 * @return the score, positive when AI is better
+	 */
+	public long getScore()
+	{
+		return score;
+	}
+
+	/**
+	 * Get the depth just completed
+	 * @return the depth
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	/**
+	 * Get the score of a column
+	 * @param col the column, in the range between 0 to Game.getColumn() - 1 inclusively
+	 * @return the score, positive when AI is better, meaningless if the column was not searched
+	 */
+	public long getColumnScore(int col)
+	{
+		return columnScores[col];
+	}
+
+	/**
+	 * Get how the score of a column is known
+	 * @param col the column, in the range between 0 to Game.getColumn() - 1 inclusively
+	 * @return TranspositionTable.EXACT, LOWER if the column scores at least its score,
+	 * UPPER if it scores at most its score, NOT_SEARCHED if it was not searched
+	 */
+	public int getColumnBound(int col)
+	{
+		return columnBounds[col];
+	}
+
+	/**
+	 * Get the number of nodes searched so far, including the helper threads
+	 * @return the number of nodes
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+
+	/**
+	 * Get how long the search has taken so far
+	 * @return the elapsed time
+	 */
+	public Duration getElapsed()
+	{
+		return elapsed;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder scores = new StringBuilder();
+		for (int col = 0; col < columnScores.length; ++col)
+		{
+			scores.append(col == 0? "[" : ", ");
+			if (columnBounds[col] == NOT_SEARCHED)
+				scores.append('-');
+			else
+				scores.append(columnBounds[col] == TranspositionTable.LOWER? ">=" : columnBounds[col] == TranspositionTable.UPPER? "<=" : "")
+						.append(columnScores[col]);
+		}
+		return "depth=" + depth + " column=" + column + " score=" + score + " columns=" + scores + "] nodes=" + nodes
+				+ " elapsed=" + elapsed.toMillis() + "ms";
+	}
+}
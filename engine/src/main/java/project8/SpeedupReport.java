@@ -0,0 +1,56 @@
+package project8;
+
+/**
+ * This program reports how the parallel GameAI search scales with the number of threads.
+ * For every thread count from 1 to the number given as argument (by default the number
+ * of available processors) it lets the AI choose a column in a fixed set of positions
+ * and prints the total time and the speedup over one thread.
+ * @author YiWang
+ */
+public class SpeedupReport {
+	private static final int ROUNDS = 3;	// how many times each position is searched
+	// the positions, as the columns played from the empty board; the AI plays second and is to move
+	private static final String[] POSITIONS = {"44536", "45443", "32544", "1234567", "4453312", "2234415", "3352146", "45346", "3445566", "44444"};
+
+	/**
+	 * The main method prints the speedup curve.
+	 * @param args optionally the largest number of threads to report
+	 */
+	public static void main(String[] args)
+	{
+		int maxThreads = args.length > 0? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		timePositions(1);		// warm up the JIT compiler
+		long baseline = 0;
+		System.out.println("threads\ttime(ms)\tspeedup");
+		for (int threads = 1; threads <= maxThreads; ++threads)
+		{
+			long time = timePositions(threads);
+			if (threads == 1)
+				baseline = time;
+			System.out.printf("%d\t%d\t%.2f%n", threads, time / 1000000, (double) baseline / time);
+		}
+	}
+
+	/**
+	 * Helper method. Search every position with a new AI using the given number of threads.
+	 * @param threads number of threads of the AI
+	 * @return the total time in nanoseconds
+	 */
+	private static long timePositions(int threads)
+	{
+		long total = 0;
+		for (int round = 0; round < ROUNDS; ++round)
+			for (String moves: POSITIONS)
+			{
+				Game game = new Game();
+				for (char move: moves.toCharArray())
+					game.placeDisc(move - '1');
+				GameAI ai = new GameAI(new TranspositionTable(), threads);
+				long start = System.nanoTime();
+				ai.chooseColumn(game);
+				total += System.nanoTime() - start;
+				ai.shutdown();
+			}
+		return total;
+	}
+}
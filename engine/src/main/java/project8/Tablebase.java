@@ -0,0 +1,224 @@
+package project8;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class is an endgame tablebase, the exact scores of solved positions, read through a memory-mapped file.
+ * The file starts with a 32 byte header (a magic number, the board it was built for,
+ * the number of entries and the number of index bits), followed by the index and
+ * one long per position, sorted in ascending order.
+ * The upper 55 bits of an entry are the upper 55 bits of the position key with the player
+ * to move, and the lowest 9 bits are the exact score plus the number of cells of the board.
+ * The index holds, for every value of the upper index bits of an entry, the first entry
+ * with that value or more, so that a lookup only searches among about 16 entries.
+ * Scores are seen from the player to move, as the scores of EndgameSolver:
+ * a win with the n-th disc on the board scores ROW * COLUMN + 1 - n, a loss scores
+ * the negation and a draw scores 0. The key is that of the canonical position,
+ * so one entry serves a position and its mirror image.
+ * Looking up a position is a binary search over the mapped file, so the tablebase
+ * is never loaded into the heap.
+ * Tablebases are written by TablebaseBuilder.
+ * @author YiWang
+ */
+public class Tablebase implements Closeable {
+	public static final int UNKNOWN = Integer.MIN_VALUE;	// the score returned for a position not in the tablebase
+	private static final long MAGIC = 0x4334544241534531L;	// "C4TBASE1"
+	private static final int HEADER_LONGS = 4;				// the magic number, the board, the number of entries and of index bits
+	private static final int ENTRIES_PER_BUCKET = 16;		// about how many entries share one index value
+	private static final int MAX_INDEX_BITS = 24;			// the most index bits
+	private static final long SCORE_MASK = 0x1FF;			// the bits of an entry holding the score
+	private static final int SIZE = Game.getRow() * Game.getColumn();	// number of cells of the board
+
+	private final FileChannel channel;
+	private final LongBuffer index;		// the first entry of each bucket, and the number of entries at the end
+	private final LongBuffer entries;	// the sorted entries, shared by all threads and never modified
+	private final int indexBits;		// number of upper bits of an entry selecting its bucket
+	private final int maxEmpties;		// the most empty cells of a position in the tablebase
+
+	/**
+	 * Helper constructor. Use open to read a tablebase.
+	 * @param channel the opened tablebase file
+	 * @param index the mapped index
+	 * @param entries the mapped entries
+	 * @param indexBits number of upper bits of an entry selecting its bucket
+	 * @param maxEmpties the most empty cells of a position in the tablebase
+	 */
+	private Tablebase(FileChannel channel, LongBuffer index, LongBuffer entries, int indexBits, int maxEmpties)
+	{
+		this.channel = channel;
+		this.index = index;
+		this.entries = entries;
+		this.indexBits = indexBits;
+		this.maxEmpties = maxEmpties;
+	}
+
+	/**
+	 * Open a tablebase file
+	 * @param file the tablebase file written by TablebaseBuilder
+	 * @return the tablebase
+	 * @throws IOException if the file cannot be read, is not a tablebase or was built for another board
+	 */
+	public static Tablebase open(Path file) throws IOException
+	{
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try
+		{
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Tablebase too large to be mapped: " + file);
+			LongBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asLongBuffer();
+			if (mapped.limit() < HEADER_LONGS || mapped.get(0) != MAGIC)
+				throw new IOException("Not a tablebase: " + file);
+			if ((mapped.get(1) & ~0xFFL) != board(0))
+				throw new IOException("Tablebase for another board: " + file);
+			long count = mapped.get(2);
+			long indexBits = mapped.get(3);
+			if (count < 0 || indexBits < 0 || indexBits > MAX_INDEX_BITS
+					|| count != mapped.limit() - HEADER_LONGS - (1 << indexBits) - 1)
+				throw new IOException("Truncated tablebase: " + file);
+			mapped.position(HEADER_LONGS);
+			LongBuffer index = mapped.slice();
+			index.limit((1 << indexBits) + 1);
+			mapped.position(HEADER_LONGS + index.limit());
+			return new Tablebase(channel, index, mapped.slice(), (int) indexBits, (int) (mapped.get(1) & 0xFF));
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Write a tablebase file. A position given more than once is written once.
+	 * @param file the tablebase file to write
+	 * @param keys the keys of the positions with the player to move
+	 * @param scores the exact score of each position, from the view of the player to move
+	 * @param count number of positions given
+	 * @param maxEmpties the most empty cells of a position in the tablebase
+	 * @return number of positions written
+	 * @throws IOException if the file cannot be written
+	 */
+	public static int write(Path file, long[] keys, int[] scores, int count, int maxEmpties) throws IOException
+	{
+		long[] sorted = new long[count];
+		for (int i = 0; i < count; ++i)
+			sorted[i] = entry(keys[i], scores[i]);
+		Arrays.sort(sorted);
+		int unique = 0;
+		for (int i = 0; i < count; ++i)
+			if (unique == 0 || sorted[i] != sorted[unique - 1])
+				sorted[unique++] = sorted[i];
+		int indexBits = 0;
+		while (indexBits < MAX_INDEX_BITS && (long) ENTRIES_PER_BUCKET << (indexBits + 1) <= unique)
+			indexBits++;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))
+		{
+			out.writeLong(MAGIC);
+			out.writeLong(board(maxEmpties));
+			out.writeLong(unique);
+			out.writeLong(indexBits);
+			int first = 0;		// the first entry of the bucket
+			for (int bucket = 0; bucket < 1 << indexBits; ++bucket)
+			{
+				while (first < unique && bucket(sorted[first], indexBits) < bucket)
+					first++;
+				out.writeLong(first);
+			}
+			out.writeLong(unique);
+			for (int i = 0; i < unique; ++i)
+				out.writeLong(sorted[i]);
+		}
+		return unique;
+	}
+
+	/**
+	 * Look up the exact score of a position
+	 * @param board the current position, the game must not be over
+	 * @param player the player to move, AI or HUMAN
+	 * @return the exact score from the view of the player to move, UNKNOWN if the position is not in the tablebase
+	 */
+	public int probe(Position board, char player)
+	{
+		long wanted = board.key(player) & ~SCORE_MASK;
+		int bucket = bucket(wanted, indexBits);
+		int low = (int) index.get(bucket);
+		int high = (int) index.get(bucket + 1) - 1;
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			long found = entries.get(middle) & ~SCORE_MASK;
+			if (found < wanted)
+				low = middle + 1;
+			else if (found > wanted)
+				high = middle - 1;
+			else
+				return (int) (entries.get(middle) & SCORE_MASK) - SIZE;
+		}
+		return UNKNOWN;
+	}
+
+	/**
+	 * Get the most empty cells of a position in the tablebase.
+	 * Positions with more empty cells need not be looked up.
+	 * @return the number of empty cells
+	 */
+	public int getMaxEmpties()
+	{
+		return maxEmpties;
+	}
+
+	/**
+	 * Get the number of positions in the tablebase
+	 * @return the number of positions
+	 */
+	public int size()
+	{
+		return entries.limit();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	/**
+	 * Helper method. Pack a position key and a score into a tablebase entry.
+	 * @param key the key of the position with the player to move
+	 * @param score the exact score, from -SIZE to SIZE
+	 * @return the tablebase entry
+	 */
+	private static long entry(long key, int score)
+	{
+		return (key & ~SCORE_MASK) | (score + SIZE);
+	}
+
+	/**
+	 * Helper method. Get the bucket of an entry, so that the buckets are in the order of the entries.
+	 * @param entry the entry
+	 * @param indexBits number of upper bits of an entry selecting its bucket
+	 * @return the bucket, from 0 to 2^indexBits - 1
+	 */
+	private static int bucket(long entry, int indexBits)
+	{
+		return indexBits == 0? 0 : (int) ((entry ^ Long.MIN_VALUE) >>> (64 - indexBits));
+	}
+
+	/**
+	 * Helper method. Describe the board of this program in the header of a tablebase.
+	 * @param maxEmpties the most empty cells of a position in the tablebase, stored in the lowest 8 bits
+	 * @return the board field of the header
+	 */
+	private static long board(int maxEmpties)
+	{
+		return (long) Game.getColumn() << 24 | Game.getRow() << 16 | Game.getConnect() << 8 | maxEmpties;
+	}
+}
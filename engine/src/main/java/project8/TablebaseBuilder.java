@@ -0,0 +1,393 @@
+package project8;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This program builds an endgame tablebase offline.
+ * It enumerates every position with at most the given number of empty cells that a search
+ * from its roots can reach, whoever plays first, and scores all of them exactly by working back from the end
+ * of the game: the score of a position is the best of the negated scores of its children, which are
+ * enumerated too, so every position is scored once from its children and nothing is searched twice.
+ * A search stops at a position where the player to move can win at once, so the positions after
+ * passing up such a win are left out.
+ * The roots are either the empty board, which is only feasible on small boards, or the positions of a file
+ * of games, each taken when a given number of cells, at least as many, are left empty, so that every
+ * position with at most maxEmpties empty cells below a root is in the tablebase.
+ * The roots are scored in parallel, and the positions scored by a thread are remembered for all its roots.
+ * It reports the time to build the tablebase, the size of its file and the time of a lookup.
+ * Usage: TablebaseBuilder file maxEmpties [games] [rootEmpties] [threads]
+ * @author YiWang
+ */
+public class TablebaseBuilder {
+	private static final char AI = Game.getAI();			// AI's disc
+	private static final char HUMAN = Game.getHuman();		// Human's disc
+	private static final int COLUMN = Game.getColumn();		// number of columns of the board
+	private static final int SIZE = Game.getRow() * COLUMN;	// number of cells of the board
+	private static final short VISITED = Short.MAX_VALUE;	// a position with too many empty cells, passed through but not scored
+	private static final int PROBE_POSITIONS = 100000;		// number of positions looked up to time the lookups
+	private static final int PROBE_ROUNDS = 10;				// how many times every position is looked up
+
+	/**
+	 * The main method builds the tablebase
+	 * @param args the tablebase file and the most empty cells of a position in it, then optionally a file
+	 * of games, one per line as the columns played from 1 (e.g. "4453"), to take the roots from ("-" or
+	 * no file for the empty board), the number of empty cells of the roots (default maxEmpties)
+	 * and the number of threads (default the number of available processors)
+	 * @throws Exception if the games cannot be read, the tablebase cannot be written or scoring fails
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 2)
+		{
+			System.out.println("Usage: TablebaseBuilder file maxEmpties [games] [rootEmpties] [threads]");
+			return;
+		}
+		Path file = Paths.get(args[0]);
+		int maxEmpties = Integer.parseInt(args[1]);
+		String games = args.length > 2? args[2] : "-";
+		int rootEmpties = args.length > 3? Integer.parseInt(args[3]) : maxEmpties;
+		int threads = args.length > 4? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+		if (maxEmpties < 1 || maxEmpties > Math.min(SIZE, 0xFF) || rootEmpties < maxEmpties || rootEmpties > SIZE)
+			throw new IllegalArgumentException("Invalid number of empty cells");
+		List<Position> roots = new ArrayList<Position>();
+		List<Character> players = new ArrayList<Character>();
+		if (games.equals("-"))
+			for (char first: new char[] {AI, HUMAN})
+			{
+				roots.add(new Position());
+				players.add(first);
+			}
+		else
+			try (BufferedReader in = Files.newBufferedReader(Paths.get(games)))
+			{
+				readRoots(in, rootEmpties, roots, players);
+			}
+		long start = System.nanoTime();
+		int count = build(file, maxEmpties, roots, players, threads);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d positions with at most %d empty cells from %d roots, built in %.1f s%n",
+				count, maxEmpties, roots.size(), seconds);
+		System.out.printf("%s: %d bytes, %.1f bytes per position%n", file, Files.size(file), (double) Files.size(file) / count);
+		try (Tablebase tablebase = Tablebase.open(file))
+		{
+			timeProbes(tablebase, roots, players);
+		}
+	}
+
+	/**
+	 * Read the roots from games: the position of every game when rootEmpties cells are left empty,
+	 * once with AI and once with HUMAN playing first. Games that are over or shorter than that are skipped.
+	 * @param in the games, one per line as the columns played from 1
+	 * @param rootEmpties the number of empty cells of the roots
+	 * @param roots receives the positions
+	 * @param players receives the player to move in each position
+	 * @throws IOException if the games cannot be read
+	 */
+	public static void readRoots(BufferedReader in, int rootEmpties, List<Position> roots, List<Character> players)
+			throws IOException
+	{
+		String line;
+		while ((line = in.readLine()) != null)
+		{
+			String moves = line.trim();
+			if (moves.length() < SIZE - rootEmpties)
+				continue;
+			for (char first: new char[] {AI, HUMAN})
+			{
+				Position board = new Position();
+				char player = first;
+				for (int i = 0; i < SIZE - rootEmpties && board != null; ++i)
+				{
+					int col = moves.charAt(i) - '1';
+					if (col < 0 || col >= COLUMN || !board.canPlay(col) || board.isWinningMove(col, player))
+						board = null;		// not a game, or the game is over
+					else
+					{
+						board.play(col, player);
+						player = player == AI? HUMAN : AI;
+					}
+				}
+				if (board != null)
+				{
+					roots.add(board);
+					players.add(player);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Score every position with at most maxEmpties empty cells reachable from the roots, in parallel,
+	 * and write the tablebase
+	 * @param file the tablebase file to write
+	 * @param maxEmpties the most empty cells of a position in the tablebase
+	 * @param roots the positions to start from, whose games are not over
+	 * @param players the player to move in each root
+	 * @param threads number of roots scored at the same time
+	 * @return number of positions written
+	 * @throws IOException if the tablebase cannot be written
+	 * @throws InterruptedException if the thread is interrupted while waiting for the scoring
+	 * @throws ExecutionException if scoring fails
+	 */
+	public static int build(Path file, int maxEmpties, List<Position> roots, List<Character> players, int threads)
+			throws IOException, InterruptedException, ExecutionException
+	{
+		Queue<KeyTable> tables = new ConcurrentLinkedQueue<KeyTable>();	// the positions scored by each thread
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ThreadLocal<KeyTable> scored = ThreadLocal.withInitial(() -> {
+			KeyTable table = new KeyTable();
+			tables.add(table);
+			return table;
+		});
+		try
+		{
+			List<Future<?>> results = new ArrayList<Future<?>>();
+			for (int i = 0; i < roots.size(); ++i)
+			{
+				Position root = new Position(roots.get(i));
+				char player = players.get(i);
+				results.add(pool.submit(() -> score(root, player, maxEmpties, scored.get())));
+			}
+			for (Future<?> result: results)
+				result.get();
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+		int count = 0;
+		for (KeyTable table: tables)
+			count += table.size();
+		long[] keys = new long[count];
+		int[] scores = new int[count];
+		count = 0;
+		for (KeyTable table: tables)
+			count = table.export(keys, scores, count);
+		return Tablebase.write(file, keys, scores, count, maxEmpties);
+	}
+
+	/**
+	 * Helper method. Recursively score the position and every position reachable from it.
+	 * Positions with more than maxEmpties empty cells are only passed through.
+	 * @param board the current position, the game must not be over
+	 * @param player who needs to place a disc on the current board now
+	 * @param maxEmpties the most empty cells of a position scored
+	 * @param scored the positions scored so far by this thread
+	 * @return the exact score from the view of the player, meaningless if the position has too many empty cells
+	 */
+	private static int score(Position board, char player, int maxEmpties, KeyTable scored)
+	{
+		long key = board.key(player);
+		int known = scored.get(key);
+		if (known != KeyTable.FREE)
+			return known;
+		int numDisc = board.numberDisc();
+		boolean solving = SIZE - numDisc <= maxEmpties;
+		char opponent = player == AI? HUMAN : AI;
+		for (int col = 0; col < COLUMN; ++col)
+			if (board.canPlay(col) && board.isWinningMove(col, player))
+			{
+				scored.put(key, solving? (short) (SIZE - numDisc) : VISITED);
+				return SIZE - numDisc;
+			}
+		int bestScore = -SIZE;
+		for (int col = 0; col < COLUMN; ++col)
+			if (board.canPlay(col))
+			{
+				board.play(col, player);
+				int childScore = board.isFull()? 0 : -score(board, opponent, maxEmpties, scored);
+				board.undo();
+				bestScore = Math.max(bestScore, childScore);
+			}
+		scored.put(key, solving? (short) bestScore : VISITED);
+		return bestScore;
+	}
+
+	/**
+	 * Helper method. Time the lookups of positions reached by random moves from the roots, and print the result.
+	 * The random moves stop where the player to move can win at once, as a search does.
+	 * @param tablebase the tablebase
+	 * @param roots the positions the tablebase was built from
+	 * @param players the player to move in each root
+	 */
+	private static void timeProbes(Tablebase tablebase, List<Position> roots, List<Character> players)
+	{
+		Random random = new Random(1);
+		Position[] positions = new Position[PROBE_POSITIONS];
+		char[] movers = new char[PROBE_POSITIONS];
+		for (int i = 0; i < PROBE_POSITIONS; )
+		{
+			int root = random.nextInt(roots.size());
+			Position board = new Position(roots.get(root));
+			char player = players.get(root);
+			int moves = SIZE - board.numberDisc() - tablebase.getMaxEmpties() + random.nextInt(tablebase.getMaxEmpties());
+			for (int move = 0; move < moves && board != null && !hasWinningMove(board, player); ++move)
+			{
+				int col = random.nextInt(COLUMN);
+				if (!board.canPlay(col) || board.isWinningMove(col, player) || board.numberDisc() + 1 == SIZE)
+					board = null;		// try again from another root
+				else
+				{
+					board.play(col, player);
+					player = player == AI? HUMAN : AI;
+				}
+			}
+			if (board != null && SIZE - board.numberDisc() <= tablebase.getMaxEmpties())
+			{
+				positions[i] = board;
+				movers[i++] = player;
+			}
+		}
+		int hits = 0;
+		long start = System.nanoTime();
+		for (int round = 0; round < PROBE_ROUNDS; ++round)
+			for (int i = 0; i < PROBE_POSITIONS; ++i)
+				if (tablebase.probe(positions[i], movers[i]) != Tablebase.UNKNOWN)
+					hits++;
+		double nanos = (double) (System.nanoTime() - start) / PROBE_ROUNDS / PROBE_POSITIONS;
+		System.out.printf("lookup: %.0f ns on average, %.1f%% of %d random positions found%n",
+				nanos, 100.0 * hits / PROBE_ROUNDS / PROBE_POSITIONS, PROBE_POSITIONS);
+	}
+
+	/**
+	 * Helper method. Determine whether the player could win with the next disc.
+	 * @param board the position
+	 * @param player the player to move
+	 * @return true if the player has a winning column, otherwise false
+	 */
+	private static boolean hasWinningMove(Position board, char player)
+	{
+		for (int col = 0; col < COLUMN; ++col)
+			if (board.canPlay(col) && board.isWinningMove(col, player))
+				return true;
+		return false;
+	}
+
+	/**
+	 * This class maps position keys to their scores, with open addressing,
+	 * so that millions of positions fit into two arrays instead of one object each.
+	 */
+	private static final class KeyTable
+	{
+		private static final short FREE = Short.MIN_VALUE;	// the value of a free slot, and of a key not found
+
+		private long[] keys = new long[1 << 16];	// the key of each slot
+		private short[] values = newValues(1 << 16);	// the score of each slot, VISITED or FREE
+		private int size;							// number of slots used
+
+		/**
+		 * Get the value of a key
+		 * @param key the key of the position
+		 * @return the value, FREE if the key is not in the table
+		 */
+		short get(long key)
+		{
+			int mask = keys.length - 1;
+			for (int slot = slot(key, mask); values[slot] != FREE; slot = (slot + 1) & mask)
+				if (keys[slot] == key)
+					return values[slot];
+			return FREE;
+		}
+
+		/**
+		 * Set the value of a key which is not in the table yet
+		 * @param key the key of the position
+		 * @param value the score of the position, or VISITED
+		 */
+		void put(long key, short value)
+		{
+			if (size * 2 >= keys.length)		// at most half full
+				grow();
+			insert(key, value);
+			size++;
+		}
+
+		/**
+		 * Get the number of positions scored
+		 * @return the number of keys with a score
+		 */
+		int size()
+		{
+			int count = 0;
+			for (short value: values)
+				if (value != FREE && value != VISITED)
+					count++;
+			return count;
+		}
+
+		/**
+		 * Copy the scored positions into the arrays
+		 * @param keys receives the keys
+		 * @param scores receives the scores
+		 * @param offset the index of the first position copied
+		 * @return the index after the last position copied
+		 */
+		int export(long[] keys, int[] scores, int offset)
+		{
+			for (int slot = 0; slot < values.length; ++slot)
+				if (values[slot] != FREE && values[slot] != VISITED)
+				{
+					keys[offset] = this.keys[slot];
+					scores[offset++] = values[slot];
+				}
+			return offset;
+		}
+
+		/**
+		 * Helper method. Store a key into a free slot.
+		 * @param key the key of the position
+		 * @param value the value of the position
+		 */
+		private void insert(long key, short value)
+		{
+			int mask = keys.length - 1;
+			int slot = slot(key, mask);
+			while (values[slot] != FREE)
+				slot = (slot + 1) & mask;
+			keys[slot] = key;
+			values[slot] = value;
+		}
+
+		/**
+		 * Helper method. Double the number of slots.
+		 */
+		private void grow()
+		{
+			long[] oldKeys = keys;
+			short[] oldValues = values;
+			keys = new long[oldKeys.length * 2];
+			values = newValues(oldKeys.length * 2);
+			for (int slot = 0; slot < oldKeys.length; ++slot)
+				if (oldValues[slot] != FREE)
+					insert(oldKeys[slot], oldValues[slot]);
+		}
+
+		/**
+		 * Helper method. Get the first slot to try for a key.
+		 * @param key the key, a Zobrist hash whose bits are all equally random
+		 * @param mask number of slots - 1
+		 * @return the slot
+		 */
+		private static int slot(long key, int mask)
+		{
+			return (int) (key ^ key >>> 32) & mask;
+		}
+
+		/**
+		 * Helper method. Create the values of free slots.
+		 * @param length number of slots
+		 * @return the values, all FREE
+		 */
+		private static short[] newValues(int length)
+		{
+			short[] result = new short[length];
+			Arrays.fill(result, FREE);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,584 @@
+package project8;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This program plays two engines against each other to check that a change keeps
+ * the strength and the speed of the AI. Every engine is a GameAI with its own settings,
+ * e.g. another search depth, a time budget per move or no endgame solver, optionally
+ * loaded from the jar of another build, e.g. the build before an optimization,
+ * or an MctsAI, e.g. to compare both searches with the same time per move.
+ * The games start from random openings, the same for the same seed, and every opening
+ * is played twice, so that each engine plays it once as the first player.
+ * The games run in parallel, one game per thread. Every game starts with new AIs and
+ * cleared transposition tables, so without a time budget the results do not depend
+ * on how the games are spread over the threads.
+ * For each engine the program prints its wins, draws and losses, its score with a 95% confidence interval
+ * and the Elo difference it implies, the average and the 99th percentile of the time of a move,
+ * and the nodes searched per second.
+ * Usage: Tournament engineA engineB [openings] [plies] [threads] [seed], an engine being its settings separated
+ * by commas, e.g. depth=9,solver=0, time=100,jar=old.jar or engine=mcts,time=100; "default" for the default settings
+ * @author YiWang
+ */
+public class Tournament {
+	private static final int GAMES_PER_THREAD = 4;		// how many games per thread are queued ahead of the results
+	private static final double Z = 1.96;				// the normal quantile of a 95% confidence interval
+
+	/**
+	 * The main method plays the tournament and prints the results
+	 * @param args the settings of both engines, then optionally the number of openings (default 500),
+	 * the number of random discs of an opening (default 4), the number of threads (default the number
+	 * of available processors) and the seed of the openings (default 1)
+	 * @throws Exception if an engine cannot be loaded or a game fails
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 2)
+			throw new IllegalArgumentException("Usage: Tournament engineA engineB [openings] [plies] [threads] [seed]");
+		int openings = args.length > 2? Integer.parseInt(args[2]) : 500;
+		int plies = args.length > 3? Integer.parseInt(args[3]) : 4;
+		int threads = args.length > 4? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 5? Long.parseLong(args[5]) : 1;
+		long start = System.nanoTime();
+		play(args[0], args[1], openings, plies, threads, seed, System.out);
+		System.err.printf("%d games played in %.1f s%n", openings * 2, (System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * Play every opening twice between the engines, in parallel, and print the results.
+	 * @param engineA the settings of the first engine, separated by commas: depth=n searches n discs deep,
+	 * time=ms gives every move a time budget instead, solver=n solves exactly with at most n empty cells (0 never),
+	 * threads=n searches every move with n threads, jar=file loads the engine from the jar of another build,
+	 * engine=mcts plays an MctsAI instead of a GameAI, playouts=n gives it n playouts per move without a time budget
+	 * @param engineB the settings of the second engine
+	 * @param openings number of openings, each played twice
+	 * @param plies number of random discs of an opening
+	 * @param threads number of games played at the same time
+	 * @param seed the seed of the random openings
+	 * @param out receives the results
+	 * @throws InterruptedException if the thread is interrupted while waiting for the games
+	 * @throws ExecutionException if a game fails
+	 */
+	public static void play(String engineA, String engineB, int openings, int plies, int threads, long seed, PrintStream out)
+			throws InterruptedException, ExecutionException
+	{
+		if (openings < 1)
+			throw new IllegalArgumentException("Invalid number of openings");
+		if (plies < 0 || plies > Game.getRow() * Game.getColumn() / 2)
+			throw new IllegalArgumentException("Invalid number of plies");
+		Contender[] engines = {new Contender(engineA), new Contender(engineB)};
+		Score[] scores = {new Score(), new Score()};
+		Queue<Player> players = new ConcurrentLinkedQueue<Player>();	// every player created, to shut them down
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ThreadLocal<Player[]> pairs = ThreadLocal.withInitial(() -> {
+			Player[] pair = {new Player(engines[0]), new Player(engines[1])};
+			players.addAll(Arrays.asList(pair));
+			return pair;
+		});
+		Deque<Future<Record>> pending = new ArrayDeque<Future<Record>>();	// games not counted yet
+		Random random = new Random(seed);
+		try
+		{
+			for (int i = 0; i < openings; ++i)
+			{
+				int[] opening = opening(random, plies);
+				for (int first = 0; first < 2; ++first)
+				{
+					int firstEngine = first;
+					if (pending.size() == threads * GAMES_PER_THREAD)	// wait for the oldest game before queueing more
+						add(scores, pending.poll().get());
+					pending.add(pool.submit(() -> playGame(pairs.get(), opening, firstEngine)));
+				}
+			}
+			while (!pending.isEmpty())
+				add(scores, pending.poll().get());
+		}
+		finally
+		{
+			pool.shutdownNow();
+			for (Player player: players)
+				player.shutdown();
+		}
+		report(engines, scores, openings, plies, out);
+	}
+
+	/**
+	 * Helper method. Make a random opening after which neither player can win at once.
+	 * @param random the random numbers
+	 * @param plies number of discs of the opening
+	 * @return the columns of the opening, in the order they are played
+	 */
+	private static int[] opening(Random random, int plies)
+	{
+		int[] columns = new int[plies];
+		while (true)
+		{
+			Position position = new Position();
+			char player = Game.getAI();
+			while (position.numberDisc() < plies)
+			{
+				int col = random.nextInt(Game.getColumn());
+				if (!position.canPlay(col) || position.isWinningMove(col, player))
+					break;
+				columns[position.numberDisc()] = col;
+				position.play(col, player);
+				player = player == Game.getAI()? Game.getHuman() : Game.getAI();
+			}
+			if (position.numberDisc() == plies && !hasWinningMove(position))
+				return columns;
+		}
+	}
+
+	/**
+	 * Helper method. Determine whether AI or HUMAN could win with the next disc.
+	 * @param position the position
+	 * @return true if a player has a winning column, otherwise false
+	 */
+	private static boolean hasWinningMove(Position position)
+	{
+		for (int col = 0; col < Game.getColumn(); ++col)
+			if (position.canPlay(col) && (position.isWinningMove(col, Game.getAI()) || position.isWinningMove(col, Game.getHuman())))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Helper method. Play one game from the opening to the end.
+	 * @param players the players of both engines
+	 * @param opening the columns of the opening
+	 * @param firstEngine the engine playing the first disc of the opening, 0 or 1
+	 * @return the record of the game
+	 */
+	private static Record playGame(Player[] players, int[] opening, int firstEngine)
+	{
+		Position board = new Position();		// the discs of the first engine are AI's
+		char[] discs = {Game.getAI(), Game.getHuman()};
+		players[0].newGame(firstEngine == 0);
+		players[1].newGame(firstEngine == 1);
+		Record record = new Record();
+		int mover = firstEngine;
+		for (int col: opening)
+		{
+			board.play(col, discs[mover]);
+			players[0].play(col);
+			players[1].play(col);
+			mover = 1 - mover;
+		}
+		while (true)
+		{
+			long start = System.nanoTime();
+			int col = players[mover].think();
+			record.addMove(mover, System.nanoTime() - start, players[mover].getNodes());
+			if (col < 0 || col >= Game.getColumn() || !board.canPlay(col))
+				throw new IllegalStateException("Engine " + players[mover].getEngine() + " played the invalid column " + col);
+			boolean won = board.isWinningMove(col, discs[mover]);
+			board.play(col, discs[mover]);
+			players[0].play(col);
+			players[1].play(col);
+			if (won || board.isFull())
+			{
+				record.result = won? (mover == 0? 1 : -1) : 0;
+				return record;
+			}
+			mover = 1 - mover;
+		}
+	}
+
+	/**
+	 * Helper method. Count a game for both engines.
+	 * @param scores the scores of both engines
+	 * @param record the record of the game
+	 */
+	private static void add(Score[] scores, Record record)
+	{
+		for (int engine = 0; engine < 2; ++engine)
+		{
+			int result = engine == 0? record.result : -record.result;
+			Score score = scores[engine];
+			if (result > 0)
+				score.wins++;
+			else if (result == 0)
+				score.draws++;
+			else
+				score.losses++;
+			for (int i = 0; i < record.moves[engine]; ++i)
+				score.addMove(record.latencies[engine][i]);
+			score.nodes += record.nodes[engine];
+		}
+	}
+
+	/**
+	 * Helper method. Print one line per engine.
+	 * @param engines both engines
+	 * @param scores the scores of both engines
+	 * @param openings number of openings
+	 * @param plies number of random discs of an opening
+	 * @param out receives the results
+	 */
+	private static void report(Contender[] engines, Score[] scores, int openings, int plies, PrintStream out)
+	{
+		out.printf("%d games from %d openings of %d discs, each played with both engines first%n", openings * 2, openings, plies);
+		out.println("engine\tW\tD\tL\tscore\t95% CI\tElo\t95% CI\tmoves\tavg(ms)\tp99(ms)\tnodes/s\tsettings");
+		for (int engine = 0; engine < 2; ++engine)
+		{
+			Score score = scores[engine];
+			double games = score.wins + score.draws + score.losses;
+			double points = (score.wins + score.draws / 2.0) / games;
+			// the standard error of the score per game, from the spread of the results
+			double variance = (score.wins * Math.pow(1 - points, 2) + score.draws * Math.pow(0.5 - points, 2)
+					+ score.losses * Math.pow(points, 2)) / games;
+			double margin = Z * Math.sqrt(variance / games);
+			long[] latencies = Arrays.copyOf(score.latencies, score.moves);
+			Arrays.sort(latencies);
+			long totalNanos = 0;
+			for (long latency: latencies)
+				totalNanos += latency;
+			long p99 = latencies.length == 0? 0 : latencies[(int) Math.ceil(latencies.length * 0.99) - 1];
+			out.printf("%s\t%d\t%d\t%d\t%.1f%%\t+-%.1f%%\t%s\t[%s, %s]\t%d\t%.2f\t%.2f\t%.0f\t%s%n", engine == 0? "A" : "B",
+					score.wins, score.draws, score.losses, points * 100, margin * 100, elo(points), elo(points - margin),
+					elo(points + margin), score.moves, score.moves == 0? 0 : totalNanos / 1e6 / score.moves, p99 / 1e6,
+					totalNanos == 0? 0 : score.nodes / (totalNanos / 1e9), engines[engine]);
+		}
+	}
+
+	/**
+	 * Helper method. Convert a score to an Elo difference.
+	 * @param points the score per game, from 0 to 1
+	 * @return the Elo difference, signed, or -inf or +inf for a score of 0 or 1
+	 */
+	private static String elo(double points)
+	{
+		if (points <= 0)
+			return "-inf";
+		if (points >= 1)
+			return "+inf";
+		return String.format("%+.0f", -400 * Math.log10(1 / points - 1) + 0.0);	// + 0.0 turns -0 into 0
+	}
+
+	/**
+	 * This class is the settings of one engine, and the classes of the build it is loaded from.
+	 * The engine is only used through the public methods of Game, GameAI or MctsAI and SearchStats,
+	 * so that the jar of an older build can be played the same way.
+	 */
+	private static final class Contender
+	{
+		private final String settings;				// the settings, as given
+		private int depth = 11;						// how deep a move is searched without a time budget
+		private Duration moveTime;					// how long a move may be thought about, null to search to the depth
+		private int solverThreshold = -1;			// the empty cells at which the solver takes over, -1 for the default
+		private int threads = 1;					// number of threads searching a move
+		private boolean mcts;						// true to play an MctsAI, false for a GameAI
+		private int playouts = -1;					// the playouts of an MctsAI without a time budget, -1 for the default
+		private final Constructor<?> newGame;		// Game()
+		private final Constructor<?> newTable;		// TranspositionTable(), null for an MctsAI
+		private final Constructor<?> newAI;			// GameAI(TranspositionTable, int) or MctsAI(int)
+		private final Method setFirstPlayer;		// Game.setFirstPlayer(boolean)
+		private final Method placeDisc;				// Game.placeDisc(int)
+		private final Method clear;					// TranspositionTable.clear(), null for an MctsAI
+		private final Method setMaxDepth;			// GameAI.setMaxDepth(int), null for an MctsAI
+		private final Method setSolverThreshold;	// GameAI.setSolverThreshold(int), null for an MctsAI
+		private final Method setPlayouts;			// MctsAI.setPlayouts(int), null for a GameAI
+		private final Method analyze;				// analyze(Game) or analyze(Game, Duration) of the AI
+		private final Method shutdown;				// shutdown() of the AI
+		private final Method getColumn;				// SearchStats.getColumn()
+		private final Method getNodes;				// SearchStats.getNodes()
+
+		/**
+		 * Constructor with the settings of the engine
+		 * @param settings the settings separated by commas, see Tournament.play
+		 */
+		Contender(String settings)
+		{
+			this.settings = settings;
+			String jar = null;
+			boolean searchSettings = false;		// true if a setting only a GameAI has was given
+			for (String setting: settings.split(","))
+			{
+				String[] pair = setting.trim().split("=", 2);
+				if (pair[0].isEmpty() || pair[0].equals("default"))
+					continue;
+				if (pair.length != 2)
+					throw new IllegalArgumentException("Invalid engine setting " + setting);
+				switch (pair[0])
+				{
+				case "depth":
+					depth = Integer.parseInt(pair[1]);
+					searchSettings = true;
+					break;
+				case "time":
+					moveTime = Duration.ofMillis(Long.parseLong(pair[1]));
+					break;
+				case "solver":
+					solverThreshold = Integer.parseInt(pair[1]);
+					searchSettings = true;
+					break;
+				case "threads":
+					threads = Integer.parseInt(pair[1]);
+					break;
+				case "jar":
+					jar = pair[1];
+					break;
+				case "engine":
+					if (!pair[1].equals("mcts") && !pair[1].equals("minimax"))
+						throw new IllegalArgumentException("Invalid engine " + pair[1]);
+					mcts = pair[1].equals("mcts");
+					break;
+				case "playouts":
+					playouts = Integer.parseInt(pair[1]);
+					break;
+				default:
+					throw new IllegalArgumentException("Invalid engine setting " + setting);
+				}
+			}
+			if (mcts? searchSettings : playouts != -1)
+				throw new IllegalArgumentException("Engine " + settings + " has settings of the other engine");
+			try
+			{
+				ClassLoader loader = jar == null? Tournament.class.getClassLoader()
+						: new URLClassLoader(new URL[] {Paths.get(jar).toUri().toURL()}, ClassLoader.getPlatformClassLoader());
+				Class<?> game = loader.loadClass("project8.Game");
+				Class<?> table = loader.loadClass("project8.TranspositionTable");
+				Class<?> ai = loader.loadClass(mcts? "project8.MctsAI" : "project8.GameAI");
+				Class<?> stats = loader.loadClass("project8.SearchStats");
+				if ((int) game.getMethod("getColumn").invoke(null) != Game.getColumn()
+						|| (int) game.getMethod("getRow").invoke(null) != Game.getRow())
+					throw new IllegalArgumentException("Engine " + settings + " plays on another board");
+				newGame = game.getConstructor();
+				newTable = mcts? null : table.getConstructor();
+				newAI = mcts? ai.getConstructor(int.class) : ai.getConstructor(table, int.class);
+				setFirstPlayer = game.getMethod("setFirstPlayer", boolean.class);
+				placeDisc = game.getMethod("placeDisc", int.class);
+				clear = mcts? null : table.getMethod("clear");
+				setMaxDepth = mcts? null : ai.getMethod("setMaxDepth", int.class);
+				setSolverThreshold = mcts? null : ai.getMethod("setSolverThreshold", int.class);
+				setPlayouts = mcts? ai.getMethod("setPlayouts", int.class) : null;
+				analyze = moveTime == null? ai.getMethod("analyze", game) : ai.getMethod("analyze", game, Duration.class);
+				shutdown = ai.getMethod("shutdown");
+				getColumn = stats.getMethod("getColumn");
+				getNodes = stats.getMethod("getNodes");
+			}
+			catch (MalformedURLException | ReflectiveOperationException e)
+			{
+				throw new IllegalArgumentException("Engine " + settings + " cannot be loaded: " + e, e);
+			}
+		}
+
+		/**
+		 * Get the settings of the engine
+		 * @return the settings, as given
+		 */
+		@Override
+		public String toString()
+		{
+			return settings;
+		}
+	}
+
+	/**
+	 * This class is one engine playing one game after another on one thread.
+	 * It keeps its own game, in which the engine is AI and the other engine is the human.
+	 */
+	private static final class Player
+	{
+		private final Contender engine;	// the engine playing
+		private final Object table;		// the transposition table, reused for every game, null for an MctsAI
+		private Object ai;				// the AI of the current game
+		private Object game;			// the current game
+		private long nodes;				// number of nodes searched for the last move
+
+		/**
+		 * Constructor with the engine playing
+		 * @param engine the engine
+		 */
+		Player(Contender engine)
+		{
+			this.engine = engine;
+			table = engine.newTable == null? null : invoke(engine.newTable);
+		}
+
+		/**
+		 * Start a new game with a new AI and a cleared transposition table
+		 * @param first true if the engine plays the first disc
+		 */
+		void newGame(boolean first)
+		{
+			shutdown();
+			if (engine.mcts)
+			{
+				ai = invoke(engine.newAI, engine.threads);
+				if (engine.playouts != -1)
+					invoke(engine.setPlayouts, ai, engine.playouts);
+			}
+			else
+			{
+				invoke(engine.clear, table);
+				ai = invoke(engine.newAI, table, engine.threads);
+				invoke(engine.setMaxDepth, ai, engine.depth);
+				if (engine.solverThreshold >= 0)
+					invoke(engine.setSolverThreshold, ai, engine.solverThreshold);
+			}
+			game = invoke(engine.newGame);
+			invoke(engine.setFirstPlayer, game, !first);
+		}
+
+		/**
+		 * Let the engine choose its column, without playing it
+		 * @return the column chosen
+		 */
+		int think()
+		{
+			Object stats = engine.moveTime == null? invoke(engine.analyze, ai, game) : invoke(engine.analyze, ai, game, engine.moveTime);
+			nodes = (long) invoke(engine.getNodes, stats);
+			return (int) invoke(engine.getColumn, stats);
+		}
+
+		/**
+		 * Play the disc of the player to move. The end of the game is detected by the tournament.
+		 * @param col the column
+		 */
+		void play(int col)
+		{
+			try
+			{
+				engine.placeDisc.invoke(game, col);
+			}
+			catch (InvocationTargetException e)
+			{
+				if (!e.getCause().getClass().getSimpleName().equals("GameOverException"))
+					throw new IllegalStateException("Engine " + engine + " failed: " + e.getCause(), e.getCause());
+			}
+			catch (IllegalAccessException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * Get the number of nodes searched for the last move
+		 * @return the number of nodes
+		 */
+		long getNodes()
+		{
+			return nodes;
+		}
+
+		/**
+		 * Get the engine playing
+		 * @return the engine
+		 */
+		Contender getEngine()
+		{
+			return engine;
+		}
+
+		/**
+		 * Stop the threads of the current AI, if any
+		 */
+		void shutdown()
+		{
+			if (ai != null)
+				invoke(engine.shutdown, ai);
+		}
+
+		/**
+		 * Helper method. Call a method of the engine's build.
+		 * @param method the method
+		 * @param target the object called, null for a static method
+		 * @param args the arguments
+		 * @return the result of the method
+		 */
+		private Object invoke(Method method, Object target, Object... args)
+		{
+			try
+			{
+				return method.invoke(target, args);
+			}
+			catch (InvocationTargetException e)
+			{
+				throw new IllegalStateException("Engine " + engine + " failed: " + e.getCause(), e.getCause());
+			}
+			catch (IllegalAccessException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * Helper method. Create an object of the engine's build.
+		 * @param constructor the constructor
+		 * @param args the arguments
+		 * @return the new object
+		 */
+		private Object invoke(Constructor<?> constructor, Object... args)
+		{
+			try
+			{
+				return constructor.newInstance(args);
+			}
+			catch (InvocationTargetException e)
+			{
+				throw new IllegalStateException("Engine " + engine + " failed: " + e.getCause(), e.getCause());
+			}
+			catch (ReflectiveOperationException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * This class is the record of one game.
+	 */
+	private static final class Record
+	{
+		private int result;								// 1 if the first engine won, -1 if the second won, 0 for a draw
+		private final int[] moves = new int[2];			// number of moves searched by each engine
+		private final long[][] latencies = new long[2][Game.getRow() * Game.getColumn()];	// time of each move in nanoseconds
+		private final long[] nodes = new long[2];		// number of nodes searched by each engine
+
+		/**
+		 * Add a searched move
+		 * @param engine the engine moving, 0 or 1
+		 * @param nanos how long the move took
+		 * @param nodes number of nodes searched
+		 */
+		void addMove(int engine, long nanos, long nodes)
+		{
+			latencies[engine][moves[engine]++] = nanos;
+			this.nodes[engine] += nodes;
+		}
+	}
+
+	/**
+	 * This class is the score and the move times of one engine over all games.
+	 */
+	private static final class Score
+	{
+		private int wins;								// number of games won
+		private int draws;								// number of games drawn
+		private int losses;								// number of games lost
+		private long[] latencies = new long[1024];		// time of each move in nanoseconds
+		private int moves;								// number of moves searched
+		private long nodes;								// number of nodes searched
+
+		/**
+		 * Add the time of a move
+		 * @param nanos how long the move took
+		 */
+		void addMove(long nanos)
+		{
+			if (moves == latencies.length)
+				latencies = Arrays.copyOf(latencies, moves * 2);
+			latencies[moves++] = nanos;
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package project8;
+import java.util.Arrays;
+
+/**
+ * This class is a fixed-size transposition table for the GameAI search.
+ * Every entry remembers the score, the bound type, the depth and the best move
+ * of a searched position. The entries live in two primitive arrays, one for
+ * the position keys and one for the packed entry data, so probing and storing
+ * never allocate.
+ * The table can be shared by several search threads without locks: every slot
+ * stores its key XOR its data, so an entry torn by two threads writing the same
+ * slot at once no longer matches its key and is simply treated as missing.
+ * Every entry also remembers the generation of the search that stored it, so that
+ * a table kept from move to move prefers to replace the entries of older searches.
+ * @author YiWang
+ */
+public class TranspositionTable {
+	/** The score is the exact minimax score of the position */
+	public static final int EXACT = 0;
+	/** The score is a lower bound, the search failed high */
+	public static final int LOWER = 1;
+	/** The score is an upper bound, the search failed low */
+	public static final int UPPER = 2;
+
+	/** Replacement policy: a new entry always replaces the old one */
+	public static final int ALWAYS_REPLACE = 0;
+	/** Replacement policy: a new entry replaces the old one only if it is searched at least as deep, or the old one is from an older generation */
+	public static final int DEPTH_PREFERRED = 1;
+
+	private static final int DEFAULT_SIZE = 1 << 20;	// default number of entries
+
+	// layout of the packed entry data: the score is in the lowest 32 bits
+	private static final int DEPTH_SHIFT = 32;		// 8 bits, depth + 1 so that 0 means an empty slot
+	private static final int BOUND_SHIFT = 40;		// 2 bits
+	private static final int MOVE_SHIFT = 42;		// 4 bits, move + 1 so that 0 means no move
+	static final int GENERATION_SHIFT = 46;			// 6 bits, the highest ones used
+	private static final int GENERATIONS = 1 << 6;	// number of different generations, they wrap around
+
+	private final long[] keys;		// the position key XOR the packed entry of each slot
+	private final long[] data;		// the packed entry of each slot
+	private final int mask;			// number of slots - 1, the number of slots is a power of 2
+	private final int policy;		// the replacement policy
+	private int generation;			// the generation of the current search
+
+	/**
+	 * Default constructor, creating a table of 2^20 entries with depth-preferred replacement
+	 */
+	public TranspositionTable()
+	{
+		this(DEFAULT_SIZE, DEPTH_PREFERRED);
+	}
+
+	/**
+	 * Constructor with size and replacement policy
+	 * @param size the maximum number of entries, rounded down to a power of 2
+	 * @param policy ALWAYS_REPLACE or DEPTH_PREFERRED
+	 */
+	public TranspositionTable(int size, int policy)
+	{
+		if (size < 1)
+			throw new IllegalArgumentException("Invalid table size");
+		if (policy != ALWAYS_REPLACE && policy != DEPTH_PREFERRED)
+			throw new IllegalArgumentException("Invalid replacement policy");
+		int slots = Integer.highestOneBit(size);
+		keys = new long[slots];
+		data = new long[slots];
+		mask = slots - 1;
+		this.policy = policy;
+	}
+
+	/**
+	 * Look up a position
+	 * @param key the key of the position
+	 * @return the packed entry of the position, 0 if the position is not in the table
+	 */
+	public long probe(long key)
+	{
+		int index = (int) key & mask;
+		long entry = data[index];
+		if (entry != 0 && (keys[index] ^ entry) == key)
+			return entry;
+		return 0;
+	}
+
+	/**
+	 * Store a searched position
+	 * @param key the key of the position
+	 * @param score the score of the position
+	 * @param depth how deep the position was searched, between 0 and 254 inclusively
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param move the best move found, -1 if there is none
+	 */
+	public void store(long key, long score, int depth, int bound, int move)
+	{
+		int index = (int) key & mask;
+		long old = data[index];
+		if (policy == DEPTH_PREFERRED && old != 0 && (keys[index] ^ old) != key && depth(old) > depth
+				&& generation(old) == generation)
+			return;
+		long entry = pack(score, depth, bound, move, generation);
+		data[index] = entry;
+		keys[index] = key ^ entry;
+	}
+
+	/**
+	 * Start a new generation, e.g. for the search of the next move.
+	 * The entries stored so far stay in the table and are still found,
+	 * but any new entry may replace them, however deep they were searched.
+	 */
+	public void nextGeneration()
+	{
+		generation = (generation + 1) % GENERATIONS;
+	}
+
+	/**
+	 * Remove all entries
+	 */
+	public void clear()
+	{
+		Arrays.fill(data, 0);
+	}
+
+	/**
+	 * Helper method. Pack the data of an entry into one long, as probe returns it.
+	 * The generation is in the highest bits used, so with generation 0 the bits from GENERATION_SHIFT up are 0.
+	 * @param score the score of the position
+	 * @param depth how deep the position was searched, between 0 and 254 inclusively
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param move the best move found, -1 if there is none
+	 * @param generation the generation of the search storing the entry
+	 * @return the packed entry, never 0
+	 */
+	static long pack(long score, int depth, int bound, int move, int generation)
+	{
+		return (score & 0xFFFFFFFFL) | (long) (depth + 1) << DEPTH_SHIFT
+				| (long) bound << BOUND_SHIFT | (long) (move + 1) << MOVE_SHIFT | (long) generation << GENERATION_SHIFT;
+	}
+
+	/**
+	 * Get the score of a packed entry
+	 * @param entry the packed entry returned by probe
+	 * @return the score
+	 */
+	public static long score(long entry)
+	{
+		return (int) entry;
+	}
+
+	/**
+	 * Get the depth of a packed entry
+	 * @param entry the packed entry returned by probe
+	 * @return how deep the position was searched
+	 */
+	public static int depth(long entry)
+	{
+		return (int) (entry >>> DEPTH_SHIFT & 0xFF) - 1;
+	}
+
+	/**
+	 * Get the generation of a packed entry
+	 * @param entry the packed entry returned by probe
+	 * @return the generation of the search that stored the entry
+	 */
+	public static int generation(long entry)
+	{
+		return (int) (entry >>> GENERATION_SHIFT & (GENERATIONS - 1));
+	}
+
+	/**
+	 * Get the bound type of a packed entry
+	 * @param entry the packed entry returned by probe
+	 * @return EXACT, LOWER or UPPER
+	 */
+	public static int bound(long entry)
+	{
+		return (int) (entry >>> BOUND_SHIFT & 0x3);
+	}
+
+	/**
+	 * Get the best move of a packed entry
+	 * @param entry the packed entry returned by probe
+	 * @return the best move, -1 if there is none
+	 */
+	public static int move(long entry)
+	{
+		return (int) (entry >>> MOVE_SHIFT & 0xF) - 1;
+	}
+}